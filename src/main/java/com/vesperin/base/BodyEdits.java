@@ -0,0 +1,147 @@
+package com.vesperin.base;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.compiler.IScanner;
+import org.eclipse.jdt.core.compiler.ITerminalSymbols;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Block;
+import org.eclipse.jdt.core.dom.Comment;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.NodeFinder;
+
+/**
+ * Helpers for applying text edits confined to a method body to an existing
+ * compilation unit. See {@link Context#applyEdit(int, int, String)}.
+ *
+ * @author Huascar Sanchez
+ */
+final class BodyEdits {
+  private BodyEdits(){
+    throw new Error("Utility class");
+  }
+
+  /**
+   * Finds the innermost method body that strictly contains an edit; i.e., the
+   * edit touches neither the body's opening nor its closing brace.
+   *
+   * @param unit the compilation unit.
+   * @param offset the start of the edit.
+   * @param length the number of replaced characters.
+   * @return the method body, or null if there is none.
+   */
+  static Block findEnclosingBody(CompilationUnit unit, int offset, int length){
+    ASTNode node = NodeFinder.perform(unit, offset, length);
+
+    while(node != null){
+      if(node instanceof Block && node.getLocationInParent() == MethodDeclaration.BODY_PROPERTY){
+        final int start = node.getStartPosition();
+        final int end   = start + node.getLength();
+
+        if(start < offset && offset + length < end) return (Block) node;
+      }
+
+      node = node.getParent();
+    }
+
+    return null;
+  }
+
+  /**
+   * Checks whether a range of some content is a block whose braces are still
+   * balanced; i.e., the first token opens the block, and the last token closes
+   * it. A comment or literal swallowing the closing brace fails this check.
+   *
+   * @param content the edited content.
+   * @param start the start of the block.
+   * @param end the exclusive end of the block.
+   * @return true if the range is still a self-contained block; false otherwise.
+   */
+  static boolean isSelfContainedBlock(String content, int start, int end){
+    final IScanner scanner = ToolFactory.createScanner(
+      false, false, false, JavaCore.VERSION_1_8, JavaCore.VERSION_1_8
+    );
+
+    scanner.setSource(content.toCharArray());
+    scanner.resetTo(start, end - 1);
+
+    int depth = 0;
+
+    try {
+      int token;
+      while((token = scanner.getNextToken()) != ITerminalSymbols.TokenNameEOF){
+        if(depth == 0 && scanner.getCurrentTokenStartPosition() != start) return false;
+
+        if(token == ITerminalSymbols.TokenNameLBRACE){
+          depth++;
+        } else if(token == ITerminalSymbols.TokenNameRBRACE){
+          depth--;
+          if(depth == 0) return scanner.getCurrentTokenEndPosition() == end - 1;
+        }
+      }
+    } catch (InvalidInputException ignored){
+      return false;
+    }
+
+    return false;
+  }
+
+  /**
+   * Shifts the source ranges of a compilation unit to account for an edit. Nodes
+   * after the edit move by delta; nodes containing the edit grow by delta. The
+   * children of the edited body are not touched since they are about to be
+   * replaced.
+   *
+   * @param unit the compilation unit.
+   * @param body the edited method body.
+   * @param editEnd the (pre-edit) exclusive end of the edit.
+   * @param delta the change in length.
+   */
+  static void shiftSourceRanges(CompilationUnit unit, Block body, int editEnd, int delta){
+    if(delta == 0) return;
+
+    unit.accept(new ASTVisitor(true) {
+      @Override public boolean preVisit2(ASTNode node) {
+        shift(node, editEnd, delta);
+        return node != body;
+      }
+    });
+
+    // line and block comments are not part of the tree; copies list none
+    if(unit.getCommentList() == null) return;
+
+    for(Object each : unit.getCommentList()){
+      final Comment comment = (Comment) each;
+      if(comment.getParent() == null){
+        shift(comment, editEnd, delta);
+      }
+    }
+  }
+
+  /**
+   * Copies a compilation unit, source ranges included, into a new AST. The copy
+   * carries no bindings, problems or comments.
+   *
+   * @param unit the compilation unit.
+   * @return the copy.
+   */
+  static CompilationUnit copyOf(CompilationUnit unit){
+    final AST ast = AST.newAST(unit.getAST().apiLevel());
+    return (CompilationUnit) ASTNode.copySubtree(ast, unit);
+  }
+
+  private static void shift(ASTNode node, int editEnd, int delta){
+    final int start   = node.getStartPosition();
+    final int length  = node.getLength();
+
+    if(start >= editEnd){
+      node.setSourceRange(start + delta, length);
+    } else if(start + length >= editEnd){
+      node.setSourceRange(start, length + delta);
+    }
+  }
+}
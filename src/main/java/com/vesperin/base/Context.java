@@ -4,7 +4,9 @@ import com.google.common.collect.Lists;
 import com.vesperin.base.locations.Location;
 import com.vesperin.base.locations.Locations;
 import com.vesperin.base.locators.ClassUnit;
+import com.vesperin.base.locators.DeclarationIndex;
 import com.vesperin.base.locators.FieldUnit;
+import com.vesperin.base.locators.IntervalIndex;
 import com.vesperin.base.locators.MethodUnit;
 import com.vesperin.base.locators.ProgramUnit;
 import com.vesperin.base.locators.ProgramUnitLocator;
@@ -12,31 +14,48 @@ import com.vesperin.base.locators.SelectedUnit;
 import com.vesperin.base.locators.UnitLocation;
 import com.vesperin.base.locators.UnitLocator;
 import com.vesperin.base.utils.Jdt;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.core.compiler.IProblem;
 import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Block;
 import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.Statement;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Formatter;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Stream;
 
 
 /**
  * @author Huascar Sanchez
  */
 public class Context {
-  private final Source file;
-
+  private Source            file;
+  private ParseLevel        parseLevel;
+  private int               focalPosition;
+  private IProgressMonitor  monitor;
   private Location          scope;
   private CompilationUnit   compilationUnit;
   private List<SyntaxIssue> syntaxProblems;
   private List<Exception>   syntaxExceptions;
+  private DeclarationIndex  declarationIndex;
+  private IntervalIndex     intervalIndex;
+  private ScopeTree         scopeTree;
+  private Map<MethodDeclaration, DefUseIndex> defUseIndexes;
+  private boolean           sharedUnit;
+  private JavaParser        parser;
 
 
   private static Set<Integer> BLACK_LIST;
@@ -65,9 +84,45 @@ public class Context {
    * @param file {@link Source} object.
    */
   public Context(Source file){
+    this(file, ParseLevel.BINDINGS);
+  }
+
+  /**
+   * Construct a new {@link Context} object.
+   *
+   * @param file {@link Source} object.
+   * @param parseLevel the level at which the source file will be parsed.
+   */
+  public Context(Source file, ParseLevel parseLevel){
     this.file             = file;
+    this.parseLevel       = Objects.requireNonNull(parseLevel);
+    this.focalPosition    = -1;
+    this.monitor          = null;
     this.syntaxProblems   = new ArrayList<>();
     this.syntaxExceptions = new ArrayList<>();
+    this.sharedUnit       = false;
+    this.parser           = null;
+  }
+
+  /**
+   * Construct a copy of a parsed {@link Context}; both share the same
+   * compilation unit, which neither of them edits in place (an edit copies it
+   * first; see {@link #applyEdit(int, int, String)}). Changes to one context
+   * are never seen by the other.
+   *
+   * @param original the context to copy.
+   */
+  Context(Context original){
+    this.file             = original.getSource();
+    this.parseLevel       = original.getParseLevel();
+    this.focalPosition    = original.getFocalPosition();
+    this.monitor          = null;
+    this.scope            = original.scope;
+    this.compilationUnit  = original.compilationUnit;
+    this.syntaxProblems   = new ArrayList<>(original.syntaxProblems);
+    this.syntaxExceptions = new ArrayList<>(original.syntaxExceptions);
+    this.sharedUnit       = true;
+    this.parser           = original.parser;
   }
 
 
@@ -85,6 +140,7 @@ public class Context {
     final List<Exception> cachedErrors = new ArrayList<>();
     final IProblem[] problems = unit.getProblems();
     if(problems.length > 0){
+      final List<IProblem> errors = new ArrayList<>();
       for(IProblem each : problems){
         final boolean hasSyntaxProblem  = (each.getID() & IProblem.Syntax) != 0;
 
@@ -98,22 +154,33 @@ public class Context {
         if(isJava15RelatedIssue) continue;
 
         if(each.isError() && (hasSyntaxProblem || inBlackList(each))){
-          final SyntaxIssue issue = buildSyntaxIssue(each, code);
-          syntaxRelatedProblems.add(issue);
-          cachedErrors.add(new Exception(issue.getMessage()));
+          errors.add(each);
         }
       }
+
+      // all issue locations are created at once
+      final int[] starts  = new int[errors.size()];
+      final int[] ends    = new int[errors.size()];
+      for(int idx = 0; idx < starts.length; idx++){
+        starts[idx] = errors.get(idx).getSourceStart();
+        ends[idx]   = errors.get(idx).getSourceEnd();
+      }
+
+      final List<Location> locations = Locations.createLocations(code, starts, ends);
+
+      for(int idx = 0; idx < starts.length; idx++){
+        final SyntaxIssue issue = buildSyntaxIssue(errors.get(idx), locations.get(idx));
+        syntaxRelatedProblems.add(issue);
+        cachedErrors.add(new Exception(issue.getMessage()));
+      }
     }
 
     return cachedErrors;
   }
 
-  private static SyntaxIssue buildSyntaxIssue(IProblem problem, Source code) {
-    final int start     = problem.getSourceStart();
-    final int end       = problem.getSourceEnd();
+  private static SyntaxIssue buildSyntaxIssue(IProblem problem, Location location) {
     final int line      = problem.getSourceLineNumber();
     final String msg    = problem.getMessage();
-    final Location location = Locations.createLocation(code, code.getContent(), start, end);
 
     assert location.getStart().getLine() + 1 /*we start from line 0*/ == line /*they start from 1*/;
 
@@ -122,8 +189,12 @@ public class Context {
   }
 
   public static Context createContext(Source code){
+    return createContext(code, ParseLevel.BINDINGS);
+  }
+
+  public static Context createContext(Source code, ParseLevel level){
     final Source      nonNull = Objects.requireNonNull(code);
-    return new Context(nonNull);
+    return new Context(nonNull, level);
   }
 
   public static Context bindContext(Context context, ParsedUnit unit){
@@ -146,10 +217,327 @@ public class Context {
   }
 
   /**
-   * @return a new ScopeAnalyzer object.
+   * Returns the index of declarations in this context's compilation unit. It is
+   * built on first use, and rebuilt after the compilation unit changes.
+   *
+   * @return the declaration index.
+   */
+  public DeclarationIndex getDeclarationIndex(){
+    if(declarationIndex == null){
+      declarationIndex = DeclarationIndex.of(this);
+    }
+
+    return declarationIndex;
+  }
+
+  /**
+   * @return true if this context's declaration index is already built; false otherwise.
+   */
+  public boolean hasDeclarationIndex(){
+    return declarationIndex != null;
+  }
+
+  /**
+   * Returns the interval index of the declarations and statements in this
+   * context's compilation unit; it answers offset queries (e.g., what encloses
+   * the cursor) without walking the AST. It is built on first use, and rebuilt
+   * after the compilation unit changes.
+   *
+   * @return the interval index.
+   */
+  public IntervalIndex getIntervalIndex(){
+    if(intervalIndex == null){
+      intervalIndex = IntervalIndex.of(this);
+    }
+
+    return intervalIndex;
+  }
+
+  /**
+   * Returns the local scopes of this context's compilation unit; bindings are
+   * resolved first if needed. It is built on first use, and rebuilt after the
+   * compilation unit changes.
+   *
+   * @return the scope tree.
+   */
+  public ScopeTree getScopeTree(){
+    final CompilationUnit unit = ensureBindings().getCompilationUnit();
+    if(scopeTree == null){
+      scopeTree = ScopeTree.of(unit);
+    }
+
+    return scopeTree;
+  }
+
+  /**
+   * @return a new ScopeAnalyzer object; bindings are resolved first if needed.
+   *    It shares this context's scope tree and def-use indexes.
    */
   public ScopeAnalyser getScopeAnalyser() {
-    return new ScopeAnalyser(getCompilationUnit());
+    final CompilationUnit unit = ensureBindings().getCompilationUnit();
+    if(defUseIndexes == null){
+      defUseIndexes = new IdentityHashMap<>();
+    }
+
+    return new ScopeAnalyser(unit, getScopeTree(), new InheritedMembersCache(), defUseIndexes);
+  }
+
+  /**
+   * Makes sure this context's compilation unit has its bindings resolved. A
+   * context parsed at {@link ParseLevel#SYNTAX} or {@link ParseLevel#SKELETON}
+   * is parsed again, with bindings and method bodies, by the parser that
+   * produced it (see {@link #getParser()}); e.g., through that parser's cache.
+   * Its compilation unit, scope and syntax problems are replaced. AST nodes
+   * obtained before the upgrade belong to the old compilation unit.
+   *
+   * @return this context.
+   */
+  public Context ensureBindings(){
+    if(getParseLevel().resolvesBindings()) return this;
+
+    replaceWith(getParser().parseJava(getSource(), ParseLevel.BINDINGS, getProgressMonitor()));
+
+    return this;
+  }
+
+  /**
+   * Applies a text edit to this context's source file and updates the context
+   * accordingly. If the edit falls inside a single method body, and that body is
+   * still a self-contained block afterwards, only the body's statements are
+   * parsed again and spliced into the existing compilation unit. Otherwise, the
+   * whole source file is parsed again, by the parser that produced this context;
+   * so are skeleton and focused contexts, whose bodies may be empty. A compilation
+   * unit shared with other contexts (e.g., one handed out by a {@link ParsedUnitCache})
+   * is copied before its first splice; the copy lists no comments.
+   *
+   * Spliced statements carry no bindings, and JDT cannot resolve bindings for
+   * nodes outside a parsed compilation unit. After a splice, this context drops
+   * to {@link ParseLevel#SYNTAX}: locator queries stay as cheap as the splice,
+   * but the next scope query (e.g., {@link #getScopeAnalyser()}) costs a full
+   * bound parse of the source file. The compilation unit's comment list is not
+   * rebuilt by a splice (JDT offers no way to do so): comments after the edit
+   * are shifted, but comments inside the edited body keep their old ranges, and
+   * comments added by the edit are not listed. Parsing the context again (e.g.,
+   * {@link #ensureBindings()}) brings the comment list up to date.
+   *
+   * @param offset the start of the edited range.
+   * @param length the number of replaced characters.
+   * @param replacement the replacement text.
+   * @return this context.
+   * @throws IllegalArgumentException if the edited range is outside the source file.
+   */
+  public Context applyEdit(int offset, int length, String replacement){
+    final String content = getSourceContent();
+    final String text    = Objects.requireNonNull(replacement);
+
+    if(offset < 0 || length < 0 || offset + length > content.length()){
+      throw new IllegalArgumentException("Error: Invalid edit range");
+    }
+
+    final String edited = content.substring(0, offset) + text + content.substring(offset + length);
+    final Source source = Source.from(getSource().getName(), edited);
+    final int    delta  = text.length() - length;
+
+    // skeletons and focused contexts may have empty bodies; they are parsed again
+    Block body = getParseLevel().includesMethodBodies() && getFocalPosition() < 0
+      ? BodyEdits.findEnclosingBody(getCompilationUnit(), offset, length)
+      : null;
+
+    if(body == null){
+      replaceWith(getParser().parseJava(source, getParseLevel(), getProgressMonitor()));
+      return this;
+    }
+
+    final int start = body.getStartPosition();
+    final int end   = start + body.getLength();
+
+    if(!BodyEdits.isSelfContainedBlock(edited, start, end + delta)){
+      replaceWith(getParser().parseJava(source, getParseLevel(), getProgressMonitor()));
+      return this;
+    }
+
+    final Context scratch = createContext(source, ParseLevel.SYNTAX);
+    scratch.setProgressMonitor(getProgressMonitor());
+    final ParsedUnit unit = parseRange(
+      scratch, ASTParser.K_STATEMENTS, start + 1, end + delta - start - 2
+    );
+
+    final Block statements = (Block) unit.getParsedNode();
+
+    if(sharedUnit){
+      // a shared compilation unit belongs to other contexts too; it is copied, not spliced
+      this.compilationUnit = BodyEdits.copyOf(getCompilationUnit());
+      this.sharedUnit      = false;
+
+      body = BodyEdits.findEnclosingBody(getCompilationUnit(), offset, length);
+    }
+
+    BodyEdits.shiftSourceRanges(getCompilationUnit(), body, offset + length, delta);
+
+    @SuppressWarnings("unchecked")
+    final List<Statement> spliced = body.statements();
+
+    spliced.clear();
+    for(Statement each : Jdt.typeSafeList(Statement.class, statements.statements())){
+      spliced.add((Statement) ASTNode.copySubtree(body.getAST(), each));
+    }
+
+    // keeps the syntax issues found outside the edited body
+    final List<SyntaxIssue> issues = new ArrayList<>(this.syntaxProblems);
+    this.syntaxProblems.clear();
+    this.syntaxExceptions.clear();
+
+    for(SyntaxIssue each : issues){
+      final Location location = each.getErrorLocation();
+      final int issueStart = location.getStart().getOffset();
+      final int issueEnd   = location.getEnd().getOffset();
+
+      final SyntaxIssue issue;
+      if(issueEnd <= start){
+        issue = new SyntaxIssue(each.getMessage(), Locations.createLocation(source, edited, issueStart, issueEnd));
+      } else if(issueStart >= end){
+        issue = new SyntaxIssue(each.getMessage(), Locations.createLocation(source, edited, issueStart + delta, issueEnd + delta));
+      } else {
+        continue;
+      }
+
+      this.syntaxProblems.add(issue);
+      this.syntaxExceptions.add(new Exception(issue.getMessage()));
+    }
+
+    this.syntaxExceptions.addAll(
+      addSyntaxErrors(
+        (CompilationUnit) statements.getRoot(), source,
+        this.syntaxProblems
+      )
+    );
+
+    final Location oldScope = this.scope;
+    this.file             = source;
+    this.parseLevel       = ParseLevel.SYNTAX;
+    this.declarationIndex = null;
+    this.intervalIndex    = null;
+    this.scopeTree        = null;
+    this.defUseIndexes    = null;
+    this.compilationUnit.setProperty(Jdt.SOURCE_FILE_PROPERTY, source);
+
+    if(oldScope != null){
+      final int scopeStart = oldScope.getStart().getOffset();
+      final int scopeEnd   = oldScope.getEnd().getOffset();
+      this.scope = Locations.createLocation(
+        source, edited, scopeStart, scopeEnd >= offset + length ? scopeEnd + delta : scopeEnd
+      );
+    }
+
+    return this;
+  }
+
+  private ParsedUnit parseRange(Context context, int mode, int offset, int length){
+    final JavaParser parser = getParser();
+
+    if(parser instanceof EclipseJavaParser){
+      return ((EclipseJavaParser) parser).parseJava(context, mode, offset, length);
+    } else if(parser instanceof ParserEngine){
+      return ((ParserEngine) parser).parseJava(context, mode, offset, length);
+    }
+
+    // other parsers cannot parse a range
+    return ParserEngine.getDefault().parseJava(context, mode, offset, length);
+  }
+
+  private void replaceWith(Context other){
+    this.file             = other.getSource();
+    this.parseLevel       = other.getParseLevel();
+    this.focalPosition    = other.getFocalPosition();
+    this.scope            = other.scope;
+    this.compilationUnit  = other.getCompilationUnit();
+    this.sharedUnit       = other.sharedUnit;
+    this.declarationIndex = null;
+    this.intervalIndex    = null;
+    this.scopeTree        = null;
+    this.defUseIndexes    = null;
+
+    this.syntaxProblems.clear();
+    this.syntaxProblems.addAll(other.syntaxProblems);
+
+    this.syntaxExceptions.clear();
+    this.syntaxExceptions.addAll(other.syntaxExceptions);
+  }
+
+  /**
+   * @return the level at which this context was parsed.
+   */
+  public ParseLevel getParseLevel(){
+    return parseLevel;
+  }
+
+  /**
+   * @return the offset around which this context was parsed, or -1 if the
+   *    whole source file was parsed.
+   */
+  public int getFocalPosition(){
+    return focalPosition;
+  }
+
+  /**
+   * Restricts the parsing of this context to the method body (or initializer)
+   * enclosing a given offset. It must be set before parsing.
+   *
+   * @param focalPosition the offset of interest.
+   * @throws IllegalArgumentException if the offset is outside the source file.
+   */
+  public void setFocalPosition(int focalPosition){
+    if(focalPosition < 0 || focalPosition > getSourceContent().length()){
+      throw new IllegalArgumentException("Error: Invalid focal position");
+    }
+
+    this.focalPosition = focalPosition;
+  }
+
+  /**
+   * @return the parser that produced this context, and that parses it again
+   *    when needed; the default engine if it is unknown.
+   */
+  JavaParser getParser(){
+    return parser == null ? ParserEngine.getDefault() : parser;
+  }
+
+  /**
+   * Sets the parser that produced this context.
+   *
+   * @param parser the parser; null for the default engine.
+   */
+  void setParser(JavaParser parser){
+    this.parser = parser;
+  }
+
+  /**
+   * @return the monitor used to cancel the parsing of this context, or null
+   *    if its parsing cannot be cancelled.
+   */
+  public IProgressMonitor getProgressMonitor(){
+    return monitor;
+  }
+
+  /**
+   * Lets the parsing of this context be cancelled; e.g., via a
+   * {@link ParseDeadline}. It must be set before parsing.
+   *
+   * @param monitor the progress monitor; null if parsing cannot be cancelled.
+   */
+  public void setProgressMonitor(IProgressMonitor monitor){
+    this.monitor = monitor;
+  }
+
+  /**
+   * @return true if the parsing of this context has been cancelled.
+   */
+  boolean isCanceled(){
+    return monitor != null && monitor.isCanceled();
+  }
+
+  void throwIfCanceled(){
+    if(isCanceled()) throw new ParseCancelledException(getSource());
   }
 
   /**
@@ -159,6 +547,20 @@ public class Context {
     return getUnitLocator().locate(unit);
   }
 
+  /**
+   * @see {@link UnitLocator#stream(ProgramUnit)} for more information.
+   */
+  public Stream<UnitLocation> stream(ProgramUnit unit){
+    return getUnitLocator().stream(unit);
+  }
+
+  /**
+   * @see {@link UnitLocator#locateAll(Collection)} for more information.
+   */
+  public Map<ProgramUnit, List<UnitLocation>> locateAll(Collection<ProgramUnit> units){
+    return getUnitLocator().locateAll(units);
+  }
+
   /**
    * @return list of methods in the parsed source file.
    */
@@ -302,7 +704,12 @@ public class Context {
       );
     }
 
-    this.compilationUnit = compilationUnit;
+    this.compilationUnit  = compilationUnit;
+    this.sharedUnit       = false;
+    this.declarationIndex = null;
+    this.intervalIndex    = null;
+    this.scopeTree        = null;
+    this.defUseIndexes    = null;
     this.compilationUnit.setProperty(
         Jdt.SOURCE_FILE_PROPERTY,
         this.getSource()
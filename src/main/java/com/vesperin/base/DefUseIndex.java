@@ -0,0 +1,362 @@
+package com.vesperin.base;
+
+import com.vesperin.base.spi.BindingRequest;
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The definitions and uses of a method, built in a single pass over it: every
+ * resolved name is keyed by its declaration's binding key, and mapped to the
+ * declaring node (if it is declared in the method) and to the sorted offsets
+ * of its uses. Asking which declarations are used in some range is then a
+ * binary search over sorted arrays rather than a walk over the AST.
+ *
+ * The same pass records, by offset, what a {@link com.vesperin.base.visitors.DeclarationsAfterVisitor}
+ * would report from any block of the method (see
+ * {@link ScopeAnalyser#getAllDeclarations(ASTNode, int, boolean)}), so these
+ * queries are range lookups too.
+ *
+ * An index is not kept with the method's node, which may be shared among
+ * threads (see {@link ParsedUnitCache}); its owner (e.g., a {@link ScopeAnalyser}
+ * created by a {@link Context}) keeps it, until the AST is modified.
+ *
+ * @author Huascar Sanchez
+ */
+public final class DefUseIndex {
+  // reported only if methods, but not variables, are requested
+  private static final int RETURNED_INVOCATION = -1;
+
+  private final long                modificationCount;
+  private final Map<String, Entry>  entries;
+  private final int[]               references;
+  private final Entry[]             referenced;
+  private final int[]               eventOffsets;
+  private final int[]               eventKinds;
+  private final IBinding[]          eventBindings;
+  private final Set<Block>          walkedBlocks;
+
+  private DefUseIndex(long modificationCount, Walk walk){
+    this.modificationCount  = modificationCount;
+    this.entries            = walk.entries;
+    this.eventOffsets       = Arrays.copyOf(walk.offsets, walk.count);
+    this.eventKinds         = Arrays.copyOf(walk.kinds, walk.count);
+    this.eventBindings      = Arrays.copyOf(walk.bindings, walk.count);
+    this.walkedBlocks       = walk.blocks;
+
+    // names are mostly met in source order; a stable sort fixes the rest
+    walk.uses.sort((a, b) -> Integer.compare(a.getStartPosition(), b.getStartPosition()));
+
+    this.references = new int[walk.uses.size()];
+    this.referenced = new Entry[walk.uses.size()];
+    for(int idx = 0; idx < references.length; idx++){
+      final SimpleName each = walk.uses.get(idx);
+      references[idx] = each.getStartPosition();
+      referenced[idx] = entries.get(declarationOf(each.resolveBinding()).getKey());
+    }
+
+    entries.values().forEach(Entry::seal);
+  }
+
+  /**
+   * Builds the def-use index of a method; bindings should be resolved.
+   *
+   * @param method the method declaration.
+   * @return the method's def-use index.
+   */
+  public static DefUseIndex of(MethodDeclaration method){
+    final long modificationCount = Objects.requireNonNull(method).getAST().modificationCount();
+
+    final Walk walk = new Walk(method.getBody());
+    method.accept(walk);
+
+    return new DefUseIndex(modificationCount, walk);
+  }
+
+  /**
+   * @param method the method this index was built for.
+   * @return true if the method's AST has not been modified since then; false otherwise.
+   */
+  public boolean isCurrent(MethodDeclaration method){
+    return method.getAST().modificationCount() == modificationCount;
+  }
+
+  private static IBinding declarationOf(IBinding binding){
+    if(binding == null) return null;
+
+    switch (binding.getKind()){
+      case IBinding.VARIABLE:
+        return ((IVariableBinding) binding).getVariableDeclaration();
+      case IBinding.METHOD:
+        return ((IMethodBinding) binding).getMethodDeclaration();
+      case IBinding.TYPE:
+        return ((ITypeBinding) binding).getTypeDeclaration();
+      default:
+        return binding;
+    }
+  }
+
+  /**
+   * @param key the binding key of a declaration.
+   * @return the node declaring it in this method; null if it is declared
+   *    elsewhere (e.g., a field), or never referenced in this method.
+   */
+  public ASTNode getDeclaration(String key){
+    final Entry entry = entries.get(key);
+    return entry == null ? null : entry.declaration;
+  }
+
+  /**
+   * @param key the binding key of a declaration.
+   * @return the sorted offsets of its uses in this method.
+   */
+  public int[] getUses(String key){
+    final Entry entry = entries.get(key);
+    return entry == null ? new int[0] : entry.uses.clone();
+  }
+
+  /**
+   * Returns the declarations used (i.e., referenced by name) within a range,
+   * in the order they are first used there.
+   *
+   * @param start the start offset (inclusive).
+   * @param end the end offset (exclusive).
+   * @return the used declarations.
+   */
+  public List<IBinding> getUsedDeclarations(int start, int end){
+    final Set<Entry> used = Collections.newSetFromMap(new IdentityHashMap<>());
+    final List<IBinding> result = new ArrayList<>();
+
+    for(int idx = lowerBound(references, start); idx < references.length && references[idx] < end; idx++){
+      if(used.add(referenced[idx])){
+        result.add(referenced[idx].binding);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * @return the number of declarations referenced in this method.
+   */
+  public int size(){
+    return entries.size();
+  }
+
+  /**
+   * @param block a block of the analysed compilation unit.
+   * @return true if {@link #collectDeclarations(int, int, int, BindingRequest)}
+   *    can answer for this block; false otherwise.
+   */
+  boolean covers(Block block){
+    return walkedBlocks.contains(block);
+  }
+
+  /**
+   * Reports what a {@link com.vesperin.base.visitors.DeclarationsAfterVisitor}
+   * walking a covered block would report from some position, in the same
+   * order; i.e., what is reported within the rest of the block.
+   *
+   * @param start the start offset (inclusive).
+   * @param end the end offset (exclusive).
+   * @param flags the flags that specify the elements to report.
+   * @param request the request to which all results are reported.
+   */
+  void collectDeclarations(int start, int end, int flags, BindingRequest request){
+    for(int idx = lowerBound(eventOffsets, start); idx < eventOffsets.length && eventOffsets[idx] < end; idx++){
+      if(isRequested(eventKinds[idx], flags) && request.accept(eventBindings[idx])){
+        return;
+      }
+    }
+  }
+
+  private static boolean isRequested(int kind, int flags){
+    if(kind == RETURNED_INVOCATION){
+      return Scope.isMethodsFlagAvailable(flags) && !Scope.isVariablesFlagAvailable(flags);
+    }
+
+    return Scope.isFlagAvailable(kind, flags);
+  }
+
+  private static int lowerBound(int[] sorted, int key){
+    int low  = 0;
+    int high = sorted.length;
+
+    while(low < high){
+      final int mid = (low + high) >>> 1;
+      if(sorted[mid] < key){
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+
+    return low;
+  }
+
+  @Override public String toString() {
+    return "DefUseIndex(size=" + size() + ")";
+  }
+
+  private static class Entry {
+    final IBinding binding;
+    ASTNode        declaration;
+    int[]          uses;
+    int            count;
+
+    Entry(IBinding binding){
+      this.binding      = binding;
+      this.declaration  = null;
+      this.uses         = new int[2];
+      this.count        = 0;
+    }
+
+    void add(int offset){
+      if(count == uses.length){
+        uses = Arrays.copyOf(uses, count * 2);
+      }
+
+      uses[count++] = offset;
+    }
+
+    void seal(){
+      uses = Arrays.copyOf(uses, count);
+      Arrays.sort(uses);
+    }
+  }
+
+  /**
+   * Visits every name of a method, and, within its body, takes the walk a
+   * {@link com.vesperin.base.visitors.DeclarationsAfterVisitor} takes (it never
+   * enters the nodes it reports, nor anonymous or local classes); what that
+   * visitor would report at any position is recorded by offset. Reported nodes
+   * do not nest, so offsets come out sorted.
+   */
+  private static class Walk extends ASTVisitor {
+    final Map<String, Entry>  entries = new LinkedHashMap<>();
+    final List<SimpleName>    uses    = new ArrayList<>();
+    final Set<Block>          blocks  = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    final Block body;
+    boolean     inBody  = false;
+    ASTNode     skipped = null; // the node whose subtree the visitor never enters
+
+    int[]       offsets   = new int[16];
+    int[]       kinds     = new int[16];
+    IBinding[]  bindings  = new IBinding[16];
+    int         count     = 0;
+
+    Walk(Block body){
+      this.body = body;
+    }
+
+    @Override public void preVisit(ASTNode node) {
+      if(node == body) inBody = true;
+    }
+
+    @Override public void postVisit(ASTNode node) {
+      if(node == skipped) skipped = null;
+      if(node == body)    inBody  = false;
+    }
+
+    private boolean isWalked(){
+      return inBody && skipped == null;
+    }
+
+    @Override public boolean visit(SimpleName node) {
+      final IBinding binding = declarationOf(node.resolveBinding());
+      final String   key     = binding == null ? null : binding.getKey();
+      if(key == null) return false;
+
+      final Entry entry = entries.computeIfAbsent(key, k -> new Entry(binding));
+      if(node.isDeclaration()){
+        entry.declaration = node.getParent();
+      } else {
+        entry.add(node.getStartPosition());
+        uses.add(node);
+      }
+
+      return false;
+    }
+
+    @Override public boolean visit(Block node) {
+      if(isWalked()) blocks.add(node);
+      return true;
+    }
+
+    @Override public boolean visit(SingleVariableDeclaration node) {
+      report(node, Scope.VARIABLES, node.resolveBinding());
+      return true;
+    }
+
+    @Override public boolean visit(VariableDeclarationFragment node) {
+      if(isWalked() && node.getInitializer() instanceof QualifiedName){
+        final QualifiedName name = (QualifiedName) node.getInitializer();
+        if(Character.isUpperCase(name.getName().getIdentifier().charAt(0))){
+          record(node, Scope.TYPES, name.getQualifier().resolveBinding());
+        }
+      }
+
+      report(node, Scope.VARIABLES, node.resolveBinding());
+      return true;
+    }
+
+    @Override public boolean visit(MethodInvocation node) {
+      report(node, Scope.METHODS, node.resolveMethodBinding());
+      return true;
+    }
+
+    @Override public boolean visit(ReturnStatement node) {
+      if(!isWalked()) return true;
+
+      if(node.getExpression() instanceof SimpleName){
+        record(node, Scope.VARIABLES, ((SimpleName) node.getExpression()).resolveBinding());
+      } else if (node.getExpression() instanceof MethodInvocation){
+        record(node, RETURNED_INVOCATION, ((MethodInvocation) node.getExpression()).resolveMethodBinding());
+      }
+
+      skipped = node;
+      return true;
+    }
+
+    @Override public boolean visit(AnonymousClassDeclaration node) {
+      if(isWalked()) skipped = node;
+      return true;
+    }
+
+    @Override public boolean visit(TypeDeclarationStatement node) {
+      report(node, Scope.TYPES, node.resolveBinding());
+      return true;
+    }
+
+    private void report(ASTNode node, int kind, IBinding binding){
+      if(!isWalked()) return;
+
+      record(node, kind, binding);
+      skipped = node;
+    }
+
+    private void record(ASTNode node, int kind, IBinding binding){
+      if(binding == null) return; // never requested
+
+      if(count == offsets.length){
+        offsets  = Arrays.copyOf(offsets, count * 2);
+        kinds    = Arrays.copyOf(kinds, count * 2);
+        bindings = Arrays.copyOf(bindings, count * 2);
+      }
+
+      offsets[count]  = node.getStartPosition();
+      kinds[count]    = kind;
+      bindings[count] = binding;
+      count++;
+    }
+  }
+}
@@ -1,17 +1,39 @@
 package com.vesperin.base;
 
+import com.vesperin.base.locations.Locations;
+import com.vesperin.base.matchers.SnippetClassifier;
+import com.vesperin.base.utils.Jdt;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.compiler.IScanner;
+import org.eclipse.jdt.core.compiler.ITerminalSymbols;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
 import org.eclipse.jdt.core.dom.AST;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.FileASTRequestor;
 
+import javax.lang.model.SourceVersion;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
+ * A Java parser backed by Eclipse JDT's {@link ASTParser}. Instances are not
+ * thread-safe; use a {@link ParserEngine} to share parsers among threads.
+ *
  * @author Huascar Sanchez
  */
 public class EclipseJavaParser implements JavaParser {
   private static final String JAVA_EXTENSION = ".java";
+  private static final String ENCODING       = StandardCharsets.UTF_8.name();
+  private static final Map<String, String> COMPILER_OPTIONS = createCompilerOptions();
+  private static final SnippetClassifier   CLASSIFIER       = new SnippetClassifier();
 
   private final ASTParser astParser;
 
@@ -29,30 +51,210 @@ public class EclipseJavaParser implements JavaParser {
    */
   EclipseJavaParser(ASTParser astParser){
     this.astParser = astParser;
+  }
 
-    this.astParser.setResolveBindings(true);
-    this.astParser.setEnvironment(null, null, null, true);
-
-    final Map options = JavaCore.getOptions();
+  private static Map<String, String> createCompilerOptions(){
+    @SuppressWarnings("unchecked")
+    final Map<String, String> options = JavaCore.getOptions();
     JavaCore.setComplianceOptions(JavaCore.VERSION_1_8, options);
-    astParser.setCompilerOptions(options);
+    return Collections.unmodifiableMap(options);
   }
 
-  @Override public ParsedUnit parseJava(Context context, int mode) {
+  private void configure(int mode, ParseLevel level, String[] sourcepathEntries, String[] encodings){
+    // Note: ASTParser#createAST(s) resets the parser to its initial state; so
+    // every setting must be applied again before each parse.
+    final boolean resolveBindings = level.resolvesBindings();
 
+    this.astParser.setCompilerOptions(COMPILER_OPTIONS);
+    this.astParser.setResolveBindings(resolveBindings);
+    if(resolveBindings){
+      this.astParser.setEnvironment(null, sourcepathEntries, encodings, true);
+    }
     this.astParser.setKind(mode);
     this.astParser.setStatementsRecovery(true);
-    this.astParser.setBindingsRecovery(true);
+    this.astParser.setBindingsRecovery(resolveBindings);
+    this.astParser.setIgnoreMethodBodies(!level.includesMethodBodies());
+  }
+
+  private void focus(int focalPosition){
+    if(focalPosition >= 0){
+      this.astParser.setFocalPosition(focalPosition);
+    }
+  }
+
+  /**
+   * Parses a batch of source files using a single lookup environment. Complete
+   * compilation units are parsed together via {@link ASTParser#createASTs};
+   * references among them are therefore resolved. Code snippets, source files
+   * whose names are not Java identifiers (they cannot be staged as files), and
+   * any source file that cannot be parsed in the batch, are parsed one by one
+   * afterwards.
+   *
+   * @param sources the source files to be parsed.
+   * @param consumer the callback receiving each parsed context.
+   */
+  @Override public void parseAll(Collection<Source> sources, Consumer<Context> consumer) {
+    Objects.requireNonNull(consumer);
+
+    final List<Source> isolated = new ArrayList<>();
+    final Map<String, Source> batch = new LinkedHashMap<>();
+
+    Path root = null;
+    try {
+      root = Files.createTempDirectory("mix");
+
+      for(Source each : Objects.requireNonNull(sources)){
+        final String content = each.getContent();
+        if(!isJavaIdentifier(each.getName()) || CLASSIFIER.classify(content) != ASTParser.K_COMPILATION_UNIT){
+          isolated.add(each);
+          continue;
+        }
+
+        final Path file = root
+          .resolve(packageOf(content).replace('.', '/'))
+          .resolve(each.getName() + JAVA_EXTENSION);
+
+        // never write outside the staging directory
+        if(!file.normalize().startsWith(root)){
+          isolated.add(each);
+          continue;
+        }
+
+        if(batch.containsKey(file.toString())){
+          // same qualified name; it needs its own environment
+          isolated.add(each);
+          continue;
+        }
+
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        batch.put(file.toString(), each);
+      }
+
+      if(!batch.isEmpty()){
+        final String[] files      = batch.keySet().toArray(new String[batch.size()]);
+        final String[] encodings  = new String[files.length];
+        Arrays.fill(encodings, ENCODING);
+
+        configure(
+          ASTParser.K_COMPILATION_UNIT,
+          ParseLevel.BINDINGS,
+          new String[]{root.toString()},
+          new String[]{ENCODING}
+        );
+
+        this.astParser.createASTs(files, encodings, new String[0], new FileASTRequestor() {
+          @Override public void acceptAST(String sourceFilePath, CompilationUnit ast) {
+            final Source source = batch.get(sourceFilePath);
+            if(source == null) return;
+
+            if(Jdt.isWellConstructedCompilationUnit(ast)){
+              consumer.accept(bindContext(source, ast));
+            } else {
+              isolated.add(source);
+            }
+          }
+        }, null);
+      }
+    } catch (IOException e){
+      throw new RuntimeException("Error: Unable to stage source files!", e);
+    } finally {
+      deleteQuietly(root);
+    }
+
+    for(Source each : isolated){
+      consumer.accept(parseJava(each));
+    }
+  }
+
+  private Context bindContext(Source source, CompilationUnit unit){
+    final Context context = Context.createContext(source);
+    context.setParser(this);
+    final ParsedUnit parsed = ParsedUnit.makeUnit(unit, false);
+
+    Context.bindContext(context, parsed);
+    context.setScope(Locations.locate(source, unit));
+    parsed.setContext(context);
+
+    return context;
+  }
+
+  private static boolean isJavaIdentifier(String name){
+    return name != null && SourceVersion.isIdentifier(name) && !SourceVersion.isKeyword(name);
+  }
+
+  private static String packageOf(String content){
+    final IScanner scanner = ToolFactory.createScanner(
+      false, false, false, JavaCore.VERSION_1_8, JavaCore.VERSION_1_8
+    );
+
+    scanner.setSource(content.toCharArray());
+
+    try {
+      if(scanner.getNextToken() != ITerminalSymbols.TokenNamepackage) return "";
+
+      final StringBuilder name = new StringBuilder();
+
+      int token;
+      while((token = scanner.getNextToken()) != ITerminalSymbols.TokenNameSEMICOLON){
+        if(token == ITerminalSymbols.TokenNameEOF) return "";
+        name.append(scanner.getCurrentTokenSource());
+      }
+
+      return name.toString();
+    } catch (InvalidInputException ignored){
+      return "";
+    }
+  }
+
+  private static void deleteQuietly(Path root){
+    if(root == null) return;
+
+    try {
+      Files.walk(root)
+        .sorted(Comparator.reverseOrder())
+        .forEach(each -> each.toFile().delete());
+    } catch (IOException ignored){
+      // best effort; files live in the temp directory anyway
+    }
+  }
+
+  @Override public ParsedUnit parseJava(Context context, int mode) {
+    return parseJava(context, mode, 0, -1);
+  }
+
+  /**
+   * Parses a range of the {@link Source} pointed to by the given context. Source
+   * positions in the resulting AST are relative to the whole source file.
+   *
+   * @param context the context pointing to the file to be parsed.
+   * @param mode the parsing mode.
+   * @param offset the start of the range.
+   * @param length the length of the range; -1 for the rest of the file.
+   * @return the parsed program unit for the context's range.
+   * @throws ParseCancelledException if the context's parsing was cancelled.
+   * @throws RuntimeException if there is a parsing error.
+   */
+  ParsedUnit parseJava(Context context, int mode, int offset, int length) {
+    context.throwIfCanceled();
+
+    configure(mode, context.getParseLevel(), null, null);
+    focus(context.getFocalPosition());
     this.astParser.setUnitName(context.getSource().getName() + JAVA_EXTENSION);
 
     final String content = context.getSourceContent();
     if(content == null || content.isEmpty()) throw new RuntimeException("Error: No source code to parse!");
 
     this.astParser.setSource(content.toCharArray());
+    this.astParser.setSourceRange(offset, length);
 
     ASTNode unit;
     try {
-      unit = this.astParser.createAST(null);
+      unit = this.astParser.createAST(context.getProgressMonitor());
+
+      // a cancelled parse may leave an incomplete tree behind
+      context.throwIfCanceled();
+
       if(unit == null){
         return ParsedUnit.empty();
       }
@@ -61,6 +263,10 @@ public class EclipseJavaParser implements JavaParser {
           unit,
           (mode == ASTParser.K_STATEMENTS || mode == ASTParser.K_EXPRESSION)
       );
+    } catch (OperationCanceledException cancelled){
+      throw new ParseCancelledException(context.getSource(), cancelled);
+    } catch (ParseCancelledException cancelled){
+      throw cancelled;
     } catch (RuntimeException error){
       throw new RuntimeException("Error: Unable to parse!");
     }
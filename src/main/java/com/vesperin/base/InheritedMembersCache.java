@@ -0,0 +1,169 @@
+package com.vesperin.base;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A memo of the members each type declares, as seen by {@link ScopeAnalyser}
+ * when it walks a type hierarchy: declared fields, methods (neither synthetic
+ * nor constructors) and member types, flattened into one array per combination
+ * of {@link Scope} flags; plus the type's interfaces.
+ *
+ * Entries are keyed by {@link ITypeBinding#getKey()}, so a cache may outlive a
+ * single query or analyser. Bindings from different parses are never mixed,
+ * though: each entry remembers the binding environment (i.e., the
+ * {@code java.lang.Object} binding) it was computed in, and is recomputed (and
+ * replaced) when asked for from another environment. A cache therefore only
+ * pays off among compilation units sharing one environment; e.g., the ones
+ * of a single {@link JavaParser#parseAll(java.util.Collection, java.util.function.Consumer)}
+ * batch. Sharing one across separate parses only makes their entries replace
+ * each other.
+ *
+ * Cached bindings keep their whole environment (ASTs included) reachable, so
+ * the cache is bounded in size, and its entries are softly referenced: the
+ * garbage collector may reclaim them under memory pressure.
+ *
+ * This class is thread-safe.
+ *
+ * @author Huascar Sanchez
+ */
+public final class InheritedMembersCache {
+  private static final int  KIND_FLAGS            = Scope.METHODS | Scope.VARIABLES | Scope.TYPES;
+  private static final long DEFAULT_MAXIMUM_SIZE  = 4096;
+
+  private final Cache<String, Entry> entries;
+
+  /**
+   * Constructs an empty cache of at most 4096 types.
+   */
+  public InheritedMembersCache(){
+    this(DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Constructs an empty cache.
+   *
+   * @param maximumSize the maximum number of cached types.
+   * @throws IllegalArgumentException if maximumSize is negative.
+   */
+  public InheritedMembersCache(long maximumSize){
+    if(maximumSize < 0) throw new IllegalArgumentException("Error: Invalid maximum size");
+
+    this.entries = CacheBuilder.newBuilder()
+      .maximumSize(maximumSize)
+      .softValues()
+      .build();
+  }
+
+  /**
+   * Returns the members a type declares, in the order the scope analysis
+   * reports them: fields, then methods, then member types.
+   *
+   * @param type the type binding.
+   * @param flags the flags that specify the members to report.
+   * @param environment the binding environment the type comes from.
+   * @return the declared members.
+   */
+  IBinding[] getDeclaredMembers(ITypeBinding type, int flags, ITypeBinding environment){
+    final int kinds = flags & KIND_FLAGS;
+
+    final Entry entry = entry(type, environment);
+    if(entry == null) return collectDeclaredMembers(type, kinds);
+
+    IBinding[] members = entry.members.get(kinds);
+    if(members == null){
+      members = collectDeclaredMembers(type, kinds);
+      entry.members.set(kinds, members);
+    }
+
+    return members;
+  }
+
+  /**
+   * @param type the type binding.
+   * @param environment the binding environment the type comes from.
+   * @return the type's interfaces.
+   */
+  ITypeBinding[] getInterfaces(ITypeBinding type, ITypeBinding environment){
+    final Entry entry = entry(type, environment);
+    return entry == null ? type.getInterfaces() : entry.interfaces;
+  }
+
+  /**
+   * @return the approximate number of cached types.
+   */
+  public long size(){
+    return entries.size();
+  }
+
+  /**
+   * Discards all cached types.
+   */
+  public void clear(){
+    entries.invalidateAll();
+  }
+
+  private Entry entry(ITypeBinding type, ITypeBinding environment){
+    final String key = type.getKey();
+    if(key == null || environment == null) return null; // nothing to key on
+
+    final Entry cached = entries.getIfPresent(key);
+    if(cached != null && cached.environment == environment){
+      return cached;
+    }
+
+    final Entry fresh = new Entry(environment, type.getInterfaces());
+    entries.put(key, fresh);
+    return fresh;
+  }
+
+  private static IBinding[] collectDeclaredMembers(ITypeBinding type, int kinds){
+    final List<IBinding> members = new ArrayList<>();
+
+    if(Scope.isVariablesFlagAvailable(kinds)){
+      for(IVariableBinding each : type.getDeclaredFields()){
+        members.add(each);
+      }
+    }
+
+    if(Scope.isMethodsFlagAvailable(kinds)){
+      for(IMethodBinding each : type.getDeclaredMethods()){
+        if(!each.isSynthetic() && !each.isConstructor()){
+          members.add(each);
+        }
+      }
+    }
+
+    if(Scope.isTypesFlagAvailable(kinds)){
+      for(ITypeBinding each : type.getDeclaredTypes()){
+        members.add(each);
+      }
+    }
+
+    return members.toArray(new IBinding[members.size()]);
+  }
+
+  @Override public String toString() {
+    return "InheritedMembersCache(size=" + size() + ")";
+  }
+
+  private static class Entry {
+    final ITypeBinding                      environment;
+    final ITypeBinding[]                    interfaces;
+    final AtomicReferenceArray<IBinding[]>  members;
+
+    Entry(ITypeBinding environment, ITypeBinding[] interfaces){
+      this.environment  = environment;
+      this.interfaces   = interfaces;
+      this.members      = new AtomicReferenceArray<>(KIND_FLAGS + 1);
+    }
+  }
+}
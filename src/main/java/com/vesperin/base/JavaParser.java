@@ -2,8 +2,13 @@ package com.vesperin.base;
 
 import com.vesperin.base.matchers.ContextMatcher;
 import com.vesperin.base.matchers.MatchMaker;
+import org.eclipse.core.runtime.IProgressMonitor;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * @author Huascar Sanchez
@@ -16,22 +21,110 @@ public interface JavaParser {
    * @return a parsed context.
    */
   default Context parseJava(Source code){
+    return parseJava(code, ParseLevel.BINDINGS);
+  }
+
+  /**
+   * Parses a source file at a given parse level.
+   *
+   * @param code the source file to be parsed.
+   * @param level the parse level; e.g., {@link ParseLevel#SYNTAX} skips binding
+   *    resolution, which is enough for locating classes, methods and fields.
+   * @return a parsed context.
+   */
+  default Context parseJava(Source code, ParseLevel level){
+    return parseJava(code, level, null);
+  }
+
+  /**
+   * Parses a source file at a given parse level; the parsing can be cancelled
+   * via a progress monitor (e.g., a {@link ParseDeadline}).
+   *
+   * @param code the source file to be parsed.
+   * @param level the parse level.
+   * @param monitor the progress monitor; null if parsing cannot be cancelled.
+   * @return a parsed context.
+   * @throws ParseCancelledException if the parsing was cancelled.
+   */
+  default Context parseJava(Source code, ParseLevel level, IProgressMonitor monitor){
     final Source     nonNullSource  = Objects.requireNonNull(code);
-    final ParsedUnit unit           = parseJava(Context.createContext(nonNullSource));
-    return unit.getContext();
+    final Context    context        = Context.createContext(nonNullSource, level);
+
+    context.setParser(this);
+    context.setProgressMonitor(monitor);
+    try {
+      return parseJava(context).getContext();
+    } finally {
+      // the monitor bounds this request only, not later re-parses (e.g., ensureBindings)
+      context.setProgressMonitor(null);
+    }
+  }
+
+  /**
+   * Parses a source file around a focal position; only the method body (or
+   * initializer) enclosing that position is fully built. Other bodies are
+   * left empty. The resulting context is meant for offset-driven queries at
+   * that position; e.g., {@link Context#locateUnit(int, int)} or scope queries.
+   *
+   * @param code the source file to be parsed.
+   * @param focalPosition the offset of interest.
+   * @return a parsed context.
+   */
+  default Context parseJavaAt(Source code, int focalPosition){
+    final Source     nonNullSource  = Objects.requireNonNull(code);
+    final Context    context        = Context.createContext(nonNullSource, ParseLevel.BINDINGS);
+
+    context.setParser(this);
+    context.setFocalPosition(focalPosition);
+
+    return parseJava(context).getContext();
   }
 
 
   /**
-   * Parses the context for a given source file. Note that the parsing mode is set
-   * to ASTParser.K_COMPILATION_UNIT.
+   * Parses a batch of source files.
+   *
+   * @param sources the source files to be parsed.
+   * @return the parsed contexts; in no particular order.
+   * @see #parseAll(Collection, Consumer)
+   */
+  default List<Context> parseAll(Collection<Source> sources){
+    final List<Context> contexts = new ArrayList<>();
+    parseAll(sources, contexts::add);
+    return contexts;
+  }
+
+  /**
+   * Parses a batch of source files, handing each parsed context to a consumer
+   * as soon as it is ready. Implementations may share a single binding
+   * environment across the whole batch, so that references between the
+   * given source files get resolved.
+   *
+   * @param sources the source files to be parsed.
+   * @param consumer the callback receiving each parsed context.
+   * @throws RuntimeException if there is a parsing error.
+   */
+  default void parseAll(Collection<Source> sources, Consumer<Context> consumer){
+    Objects.requireNonNull(consumer);
+    for(Source each : Objects.requireNonNull(sources)){
+      consumer.accept(parseJava(each));
+    }
+  }
+
+  /**
+   * Parses the context for a given source file. The parsing mode is predicted
+   * from the context's tokens; the remaining modes are tried only if the
+   * predicted one fails.
    *
    * @param context the context to be parsed.
    * @return the parsed program unit for the context; useful for post processing.
+   * @throws ParseCancelledException if the context's parsing was cancelled.
    * @throws RuntimeException if there is a parsing error.
    */
   default ParsedUnit parseJava(Context context){
-    for(ContextMatcher each : MatchMaker.generateUnitMatchers()){
+    for(ContextMatcher each : MatchMaker.generateUnitMatchers(context, this)){
+      context.throwIfCanceled();
+
       final ParsedUnit unit = each.matches(context);
       if(!unit.isEmptyUnit()){
         return unit;
@@ -0,0 +1,42 @@
+package com.vesperin.base;
+
+import java.util.Objects;
+
+/**
+ * Thrown when a parsing request is cancelled, or runs past its deadline,
+ * before producing a parsed unit. See {@link ParseDeadline}.
+ *
+ * @author Huascar Sanchez
+ */
+public class ParseCancelledException extends RuntimeException {
+  private static final long serialVersionUID = 1L;
+
+  private final Source source;
+
+  /**
+   * Constructs a new ParseCancelledException.
+   *
+   * @param source the source file whose parsing was cancelled.
+   */
+  public ParseCancelledException(Source source){
+    this(source, null);
+  }
+
+  /**
+   * Constructs a new ParseCancelledException.
+   *
+   * @param source the source file whose parsing was cancelled.
+   * @param cause the cancellation signal raised by the parser, if any.
+   */
+  public ParseCancelledException(Source source, Throwable cause){
+    super("Error: Parsing of " + Objects.requireNonNull(source).getName() + " was cancelled!", cause);
+    this.source = source;
+  }
+
+  /**
+   * @return the source file whose parsing was cancelled.
+   */
+  public Source getSource(){
+    return source;
+  }
+}
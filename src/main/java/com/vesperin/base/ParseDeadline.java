@@ -0,0 +1,79 @@
+package com.vesperin.base;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A progress monitor that cancels a parsing request once a deadline passes,
+ * or once {@link #cancel()} is called; whichever happens first. It is handed
+ * to JDT's {@link org.eclipse.jdt.core.dom.ASTParser} and checked between the
+ * steps of a parsing request (see {@link Context#setProgressMonitor(IProgressMonitor)}).
+ *
+ * @author Huascar Sanchez
+ */
+public class ParseDeadline extends NullProgressMonitor {
+  private final boolean bounded;
+  private final long    deadlineNanos;
+
+  private ParseDeadline(boolean bounded, long deadlineNanos){
+    this.bounded        = bounded;
+    this.deadlineNanos  = deadlineNanos;
+  }
+
+  /**
+   * Creates a deadline some time from now.
+   *
+   * @param duration the time given to the parsing request.
+   * @param unit the unit of duration.
+   * @return a new deadline.
+   */
+  public static ParseDeadline after(long duration, TimeUnit unit){
+    if(duration < 0) throw new IllegalArgumentException("Error: Invalid duration");
+
+    return new ParseDeadline(true, System.nanoTime() + Objects.requireNonNull(unit).toNanos(duration));
+  }
+
+  /**
+   * @return a deadline that never passes; it can only be cancelled explicitly.
+   */
+  public static ParseDeadline none(){
+    return new ParseDeadline(false, 0);
+  }
+
+  /**
+   * Cancels the parsing request.
+   */
+  public void cancel(){
+    setCanceled(true);
+  }
+
+  /**
+   * @return true if the deadline has passed; false otherwise.
+   */
+  public boolean isExpired(){
+    return bounded && System.nanoTime() - deadlineNanos >= 0;
+  }
+
+  /**
+   * @return the time (in nanoseconds) left before the deadline; 0 if the
+   *    request was cancelled or the deadline passed, and Long.MAX_VALUE if
+   *    there is no deadline.
+   */
+  public long getRemainingNanos(){
+    if(super.isCanceled()) return 0;
+    if(!bounded) return Long.MAX_VALUE;
+
+    return Math.max(0, deadlineNanos - System.nanoTime());
+  }
+
+  @Override public boolean isCanceled() {
+    return super.isCanceled() || isExpired();
+  }
+
+  @Override public String toString() {
+    return "ParseDeadline(remainingNanos=" + getRemainingNanos() + ")";
+  }
+}
@@ -0,0 +1,42 @@
+package com.vesperin.base;
+
+/**
+ * The amount of work the parser puts into building a {@link Context}.
+ *
+ * @author Huascar Sanchez
+ */
+public enum ParseLevel {
+  /**
+   * Full parse; every name in the AST is bound.
+   */
+  BINDINGS,
+
+  /**
+   * Syntax-only parse; bindings are not resolved. The context upgrades
+   * itself to {@link #BINDINGS} the first time a binding is needed.
+   * See {@link Context#ensureBindings()}.
+   */
+  SYNTAX,
+
+  /**
+   * Declarations-only parse; method bodies are left empty and bindings are
+   * not resolved. Enough for locating classes, methods and fields at a
+   * fraction of the memory. Like {@link #SYNTAX}, the context upgrades itself
+   * to {@link #BINDINGS} on demand.
+   */
+  SKELETON;
+
+  /**
+   * @return true if parsing at this level resolves bindings; false otherwise.
+   */
+  public boolean resolvesBindings(){
+    return this == BINDINGS;
+  }
+
+  /**
+   * @return true if parsing at this level builds method bodies; false otherwise.
+   */
+  public boolean includesMethodBodies(){
+    return this != SKELETON;
+  }
+}
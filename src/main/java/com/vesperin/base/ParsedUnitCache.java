@@ -0,0 +1,278 @@
+package com.vesperin.base;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * A content-addressed cache of parsed {@link Context}s. Entries are keyed by a
+ * SHA-256 hash of the source's name and content (and the parse level), and are
+ * weighted by an estimate of their AST's size in bytes.
+ *
+ * Cached contexts are never handed out: every caller gets its own copy (see
+ * {@link Context#Context(Context)}), sharing the cached compilation unit, so
+ * that editing, focusing or upgrading one copy leaves the cache and the other
+ * copies untouched.
+ *
+ * Concurrent requests for the same source file wait for a single parse, each
+ * for no longer than its own progress monitor allows. A cancelled parse is
+ * never cached, nor handed to the requests waiting for it: they parse the
+ * source file again, with their own monitors.
+ *
+ * @author Huascar Sanchez
+ */
+public class ParsedUnitCache {
+  private static final char SEPARATOR = '\0';
+  private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final Cache<HashCode, Context>                          cache;
+  private final ConcurrentMap<HashCode, CompletableFuture<Context>> loading;
+
+  private ParsedUnitCache(Builder builder){
+    final CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
+      .recordStats();
+
+    cacheBuilder.maximumWeight(builder.maximumWeight)
+      .weigher((HashCode key, Context value) -> weigh(value));
+
+    if(builder.softValues){
+      cacheBuilder.softValues();
+    }
+
+    if(builder.ttl > 0){
+      cacheBuilder.expireAfterAccess(builder.ttl, builder.ttlUnit);
+    }
+
+    this.cache    = cacheBuilder.build();
+    this.loading  = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * @return a new builder of {@link ParsedUnitCache} objects.
+   */
+  public static Builder builder(){
+    return new Builder();
+  }
+
+  /**
+   * Returns a copy of the cached context for a given source file, parsing it
+   * (and caching the result) if it is not in the cache. Concurrent requests for the same
+   * source file wait for a single parse.
+   *
+   * @param code the source file.
+   * @param level the parse level.
+   * @param parser the parsing strategy used on a cache miss.
+   * @return the parsed context.
+   */
+  public Context get(Source code, ParseLevel level, Supplier<Context> parser){
+    return get(code, level, null, parser);
+  }
+
+  /**
+   * Returns a copy of the cached context for a given source file, parsing it
+   * (and caching the result) if it is not in the cache. Concurrent requests for
+   * the same source file wait for a single parse; the monitor bounds both the
+   * wait and the parse.
+   *
+   * @param code the source file.
+   * @param level the parse level.
+   * @param monitor the request's progress monitor; null if it cannot be cancelled.
+   * @param parser the parsing strategy used on a cache miss; it should parse
+   *    with the given monitor.
+   * @return the parsed context.
+   * @throws ParseCancelledException if the request was cancelled.
+   */
+  public Context get(Source code, ParseLevel level, IProgressMonitor monitor, Supplier<Context> parser){
+    final Source nonNull = Objects.requireNonNull(code);
+    final HashCode key   = hash(nonNull, level);
+
+    Objects.requireNonNull(parser);
+
+    while(true){
+      final CompletableFuture<Context> mine     = new CompletableFuture<>();
+      final CompletableFuture<Context> inflight = loading.putIfAbsent(key, mine);
+
+      if(inflight == null){
+        try {
+          final Context context = load(key, parser);
+          mine.complete(context);
+
+          return new Context(context);
+        } catch (RuntimeException e){
+          mine.completeExceptionally(e);
+          throw e;
+        } finally {
+          loading.remove(key, mine);
+        }
+      }
+
+      try {
+        return new Context(await(nonNull, inflight, monitor));
+      } catch (ParseCancelledException cancelled){
+        if(monitor != null && monitor.isCanceled()) throw cancelled;
+
+        // someone else's parse was cancelled, not this request; parse it again
+        loading.remove(key, inflight);
+      }
+    }
+  }
+
+  private Context load(HashCode key, Supplier<Context> parser){
+    try {
+      // failed (e.g., cancelled) parses are never cached
+      return cache.get(key, parser::get);
+    } catch (ExecutionException | UncheckedExecutionException e){
+      final Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new RuntimeException("Error: Unable to parse!", cause);
+    }
+  }
+
+  private static Context await(Source code, CompletableFuture<Context> load, IProgressMonitor monitor){
+    try {
+      while(true){
+        if(monitor != null && monitor.isCanceled()) throw new ParseCancelledException(code);
+
+        long slice = monitor == null ? Long.MAX_VALUE : POLL_NANOS;
+        if(monitor instanceof ParseDeadline){
+          slice = Math.max(1, Math.min(slice, ((ParseDeadline) monitor).getRemainingNanos()));
+        }
+
+        try {
+          return load.get(slice, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ignored){
+          // checks the monitor again
+        }
+      }
+    } catch (InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Error: Interrupted while waiting for a parse!", e);
+    } catch (ExecutionException e){
+      final Throwable cause = e.getCause();
+      if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new RuntimeException("Error: Unable to parse!", cause);
+    }
+  }
+
+  /**
+   * Removes a source file from the cache.
+   *
+   * @param code the source file.
+   * @param level the parse level.
+   */
+  public void invalidate(Source code, ParseLevel level){
+    cache.invalidate(hash(Objects.requireNonNull(code), level));
+  }
+
+  /**
+   * Removes all source files from the cache.
+   */
+  public void invalidateAll(){
+    cache.invalidateAll();
+  }
+
+  /**
+   * @return the approximate number of cached contexts.
+   */
+  public long size(){
+    return cache.size();
+  }
+
+  /**
+   * @return hit, miss, load and eviction statistics.
+   */
+  public CacheStats getStats(){
+    return cache.stats();
+  }
+
+  static HashCode hash(Source code, ParseLevel level){
+    return Hashing.sha256().newHasher()
+      .putString(code.getName(), StandardCharsets.UTF_8)
+      .putChar(SEPARATOR)
+      .putString(code.getContent(), StandardCharsets.UTF_8)
+      .putChar(SEPARATOR)
+      .putInt(level.ordinal())
+      .hash();
+  }
+
+  private static int weigh(Context context){
+    if(context.getCompilationUnit() == null) return 1;
+
+    return Math.max(1, context.getCompilationUnit().subtreeBytes());
+  }
+
+  @Override public String toString() {
+    return "ParsedUnitCache(size=" + size() + ", stats=" + getStats() + ")";
+  }
+
+  /**
+   * Builds {@link ParsedUnitCache} objects.
+   */
+  public static class Builder {
+    private static final long DEFAULT_MAXIMUM_WEIGHT = 256L * 1024 * 1024;
+
+    private long      maximumWeight = DEFAULT_MAXIMUM_WEIGHT;
+    private boolean   softValues    = false;
+    private long      ttl           = 0;
+    private TimeUnit  ttlUnit       = TimeUnit.SECONDS;
+
+    Builder(){}
+
+    /**
+     * Sets the maximum estimated size, in bytes, of all cached ASTs.
+     *
+     * @param bytes the weight budget.
+     * @return this builder.
+     */
+    public Builder maximumWeight(long bytes){
+      if(bytes < 0) throw new IllegalArgumentException("Error: Invalid maximum weight");
+      this.maximumWeight = bytes;
+      return this;
+    }
+
+    /**
+     * Lets the garbage collector reclaim cached contexts under memory pressure.
+     *
+     * @return this builder.
+     */
+    public Builder softValues(){
+      this.softValues = true;
+      return this;
+    }
+
+    /**
+     * Evicts cached contexts that have not been accessed for some time.
+     *
+     * @param duration the time to live.
+     * @param unit the unit of duration.
+     * @return this builder.
+     */
+    public Builder expireAfterAccess(long duration, TimeUnit unit){
+      if(duration <= 0) throw new IllegalArgumentException("Error: Invalid time to live");
+      this.ttl      = duration;
+      this.ttlUnit  = Objects.requireNonNull(unit);
+      return this;
+    }
+
+    /**
+     * @return a new cache.
+     */
+    public ParsedUnitCache build(){
+      return new ParsedUnitCache(this);
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package com.vesperin.base;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A thread-safe {@link JavaParser} backed by a bounded pool of reusable
+ * {@link EclipseJavaParser} objects. Callers block until a parser becomes
+ * available; the time spent waiting is recorded and exposed as metrics.
+ * An optional {@link ParsedUnitCache} lets repeated requests for the same
+ * source file skip parsing altogether.
+ *
+ * @author Huascar Sanchez
+ */
+public class ParserEngine implements JavaParser {
+  private static final ParserEngine DEFAULT = new ParserEngine();
+
+  private final int                               poolSize;
+  private final BlockingQueue<EclipseJavaParser>  pool;
+  private final ParsedUnitCache                   cache;
+
+  private final AtomicLong acquisitions;
+  private final AtomicLong totalWaitNanos;
+  private final AtomicLong maxWaitNanos;
+
+  /**
+   * Constructs a new ParserEngine with one parser per available processor.
+   */
+  public ParserEngine(){
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructs a new ParserEngine.
+   *
+   * @param poolSize the number of parsers in the pool.
+   * @throws IllegalArgumentException if poolSize is less than 1.
+   */
+  public ParserEngine(int poolSize){
+    this(poolSize, null);
+  }
+
+  /**
+   * Constructs a new ParserEngine.
+   *
+   * @param poolSize the number of parsers in the pool.
+   * @param cache the cache of parsed contexts, or null if no caching is needed.
+   * @throws IllegalArgumentException if poolSize is less than 1.
+   */
+  public ParserEngine(int poolSize, ParsedUnitCache cache){
+    if(poolSize < 1){
+      throw new IllegalArgumentException("Error: Invalid pool size");
+    }
+
+    this.poolSize = poolSize;
+    this.pool     = new ArrayBlockingQueue<>(poolSize);
+    this.cache    = cache;
+
+    for(int idx = 0; idx < poolSize; idx++){
+      this.pool.add(new EclipseJavaParser());
+    }
+
+    this.acquisitions   = new AtomicLong(0);
+    this.totalWaitNanos = new AtomicLong(0);
+    this.maxWaitNanos   = new AtomicLong(0);
+  }
+
+  /**
+   * @return the engine shared by the whole JVM.
+   */
+  public static ParserEngine getDefault(){
+    return DEFAULT;
+  }
+
+  @Override public Context parseJava(Source code, ParseLevel level, IProgressMonitor monitor) {
+    if(cache == null) return JavaParser.super.parseJava(code, level, monitor);
+
+    return cache.get(code, level, monitor, () -> JavaParser.super.parseJava(code, level, monitor));
+  }
+
+  @Override public ParsedUnit parseJava(Context context, int mode) {
+    final EclipseJavaParser parser = acquire(context);
+    try {
+      return parser.parseJava(context, mode);
+    } finally {
+      release(parser);
+    }
+  }
+
+  ParsedUnit parseJava(Context context, int mode, int offset, int length) {
+    final EclipseJavaParser parser = acquire(context);
+    try {
+      return parser.parseJava(context, mode, offset, length);
+    } finally {
+      release(parser);
+    }
+  }
+
+  @Override public void parseAll(Collection<Source> sources, Consumer<Context> consumer) {
+    Objects.requireNonNull(consumer);
+
+    final EclipseJavaParser parser = acquire();
+    try {
+      // contexts are parsed again (e.g., upgraded) through this engine, not the pooled parser
+      parser.parseAll(sources, context -> {
+        context.setParser(this);
+        consumer.accept(context);
+      });
+    } finally {
+      release(parser);
+    }
+  }
+
+  private EclipseJavaParser acquire(){
+    return acquire(null);
+  }
+
+  private EclipseJavaParser acquire(Context context){
+    final long start = System.nanoTime();
+
+    // a deadline also bounds the time spent waiting for a parser
+    final IProgressMonitor monitor = context == null ? null : context.getProgressMonitor();
+
+    final EclipseJavaParser parser;
+    try {
+      if(monitor instanceof ParseDeadline){
+        parser = pool.poll(((ParseDeadline) monitor).getRemainingNanos(), TimeUnit.NANOSECONDS);
+        if(parser == null) throw new ParseCancelledException(context.getSource());
+      } else {
+        parser = pool.take();
+      }
+    } catch (InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Error: Interrupted while waiting for a parser!", e);
+    }
+
+    final long waited = System.nanoTime() - start;
+    acquisitions.incrementAndGet();
+    totalWaitNanos.addAndGet(waited);
+    maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+    return parser;
+  }
+
+  private void release(EclipseJavaParser parser){
+    pool.offer(parser);
+  }
+
+  /**
+   * @return the cache of parsed contexts, or null if there is none.
+   */
+  public ParsedUnitCache getCache(){
+    return cache;
+  }
+
+  /**
+   * @return the number of parsers in the pool.
+   */
+  public int getPoolSize(){
+    return poolSize;
+  }
+
+  /**
+   * @return the number of parsers currently idle in the pool.
+   */
+  public int getAvailableParsers(){
+    return pool.size();
+  }
+
+  /**
+   * @return the number of times a parser was taken from the pool.
+   */
+  public long getAcquisitionCount(){
+    return acquisitions.get();
+  }
+
+  /**
+   * @return the total time (in nanoseconds) callers spent waiting for a parser.
+   */
+  public long getTotalWaitNanos(){
+    return totalWaitNanos.get();
+  }
+
+  /**
+   * @return the longest time (in nanoseconds) a caller waited for a parser.
+   */
+  public long getMaxWaitNanos(){
+    return maxWaitNanos.get();
+  }
+
+  /**
+   * @return the average time (in nanoseconds) callers waited for a parser.
+   */
+  public double getAverageWaitNanos(){
+    final long count = getAcquisitionCount();
+    return count == 0 ? 0.0 : ((double) getTotalWaitNanos()) / count;
+  }
+
+  @Override public String toString() {
+    return "ParserEngine(poolSize=" + getPoolSize()
+      + ", available=" + getAvailableParsers()
+      + ", acquisitions=" + getAcquisitionCount()
+      + ")";
+  }
+}
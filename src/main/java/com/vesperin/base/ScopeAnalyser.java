@@ -8,18 +8,22 @@ import com.vesperin.base.requests.BindingRequestByValue;
 import com.vesperin.base.spi.BindingRequest;
 import com.vesperin.base.utils.Jdt;
 import com.vesperin.base.visitors.DeclarationsAfterVisitor;
-import com.vesperin.base.visitors.ScopeVisitor;
 import com.vesperin.base.visitors.StatementsSelectionVisitor;
 import org.eclipse.jdt.core.dom.*;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Evaluates all fields, methods and types available (declared) at a given
@@ -31,6 +35,11 @@ public class ScopeAnalyser {
 
   private final Set<ITypeBinding> typeBindingsVisited;
   private final CompilationUnit root;
+  private final InheritedMembersCache members;
+  private final Map<MethodDeclaration, DefUseIndex> defUses;
+
+  private ScopeTree scopes;
+  private ITypeBinding environment;
 
   /**
    * Construct a ScopeAnalyser object.
@@ -38,10 +47,75 @@ public class ScopeAnalyser {
    * @param root the compilation unit to go through scope analysis.
    */
   public ScopeAnalyser(CompilationUnit root) {
+    this(root, null);
+  }
+
+  /**
+   * Construct a ScopeAnalyser object that shares a prebuilt scope tree.
+   *
+   * @param root the compilation unit to go through scope analysis.
+   * @param scopes the scope tree of that compilation unit; null if it should
+   *    be built on first use.
+   */
+  public ScopeAnalyser(CompilationUnit root, ScopeTree scopes) {
+    this(root, scopes, new InheritedMembersCache());
+  }
+
+  /**
+   * Construct a ScopeAnalyser object that shares a prebuilt scope tree and a
+   * cache of inherited members (e.g., one cache per workspace).
+   *
+   * @param root the compilation unit to go through scope analysis.
+   * @param scopes the scope tree of that compilation unit; null if it should
+   *    be built on first use.
+   * @param members the cache of members declared by the types in the
+   *    analysed hierarchies.
+   */
+  public ScopeAnalyser(CompilationUnit root, ScopeTree scopes, InheritedMembersCache members) {
+    this(root, scopes, members, new IdentityHashMap<>());
+  }
+
+  /**
+   * Construct a ScopeAnalyser object that also shares the def-use indexes
+   * of the compilation unit's methods (e.g., those kept by a {@link Context}).
+   */
+  ScopeAnalyser(CompilationUnit root, ScopeTree scopes, InheritedMembersCache members,
+    Map<MethodDeclaration, DefUseIndex> defUses) {
+
     Objects.requireNonNull(root, "CompilationUnit is null");
 
     this.typeBindingsVisited = new HashSet<>();
     this.root = root;
+    this.scopes = scopes;
+    this.members = Objects.requireNonNull(members);
+    this.defUses = Objects.requireNonNull(defUses);
+  }
+
+  private ScopeTree getScopeTree() {
+    if (scopes == null) {
+      scopes = ScopeTree.of(root);
+    }
+
+    return scopes;
+  }
+
+  /**
+   * Returns the def-use index of a method; it is built on first use, and
+   * rebuilt after the method's AST changes.
+   *
+   * @param method a method of the analysed compilation unit.
+   * @return the method's def-use index.
+   */
+  DefUseIndex getDefUseIndex(MethodDeclaration method) {
+    final DefUseIndex cached = defUses.get(method);
+    if (cached != null && cached.isCurrent(method)) {
+      return cached;
+    }
+
+    final DefUseIndex index = DefUseIndex.of(method);
+    defUses.put(method, index);
+
+    return index;
   }
 
   /**
@@ -82,6 +156,54 @@ public class ScopeAnalyser {
    */
   public static List<IBinding> getAllDeclarations(ASTNode node, int flags, boolean focusOnFields) {
 
+    final Block declaration = findDeclarationsBlock(node, focusOnFields);
+
+    if (declaration != null) {
+      final BindingRequestBySignature request = new BindingRequestBySignature();
+      final DeclarationsAfterVisitor visitor = new DeclarationsAfterVisitor(
+        node.getStartPosition(),
+        flags,
+        request
+      );
+
+      declaration.accept(visitor);
+
+      return request.getRequestedBindings();
+    }
+
+    return new ArrayList<>();
+  }
+
+  /**
+   * Same as {@link #getAllDeclarations(ASTNode, int, boolean)}, but answered
+   * from the enclosing method's {@link DefUseIndex} whenever it covers the
+   * walked block.
+   */
+  List<IBinding> getIndexedDeclarations(ASTNode node, int flags, boolean focusOnFields) {
+    final Block declaration = findDeclarationsBlock(node, focusOnFields);
+    if (declaration == null) {
+      return new ArrayList<>();
+    }
+
+    final BodyDeclaration method = findParentBodyDeclaration(declaration);
+    if (method instanceof MethodDeclaration) {
+      final DefUseIndex index = getDefUseIndex((MethodDeclaration) method);
+      if (index.covers(declaration)) {
+        // what follows the node within the block
+        final int start = Math.max(declaration.getStartPosition(), node.getStartPosition() + 1);
+        final int end   = declaration.getStartPosition() + declaration.getLength();
+
+        final BindingRequestBySignature request = new BindingRequestBySignature();
+        index.collectDeclarations(start, end, flags, request);
+
+        return request.getRequestedBindings();
+      }
+    }
+
+    return getAllDeclarations(node, flags, focusOnFields);
+  }
+
+  private static Block findDeclarationsBlock(ASTNode node, boolean focusOnFields) {
     ASTNode declaration = Jdt.findParentStatement(node);
 
     if (declaration == null && !focusOnFields) {
@@ -94,20 +216,16 @@ public class ScopeAnalyser {
       declaration = declaration.getParent();
     }
 
-    if (declaration instanceof Block) {
-      final BindingRequestBySignature request = new BindingRequestBySignature();
-      final DeclarationsAfterVisitor visitor = new DeclarationsAfterVisitor(
-        node.getStartPosition(),
-        flags,
-        request
-      );
-
-      declaration.accept(visitor);
+    return declaration instanceof Block ? (Block) declaration : null;
+  }
 
-      return request.getRequestedBindings();
+  private ITypeBinding getEnvironment() {
+    // bindings of a single parse (or parse batch) share this very binding
+    if (environment == null) {
+      environment = root.getAST().resolveWellKnownType("java.lang.Object");
     }
 
-    return new ArrayList<>();
+    return environment;
   }
 
   private void clearVisitedBindings() {
@@ -129,23 +247,19 @@ public class ScopeAnalyser {
       return false;
     }
 
-    if (!collectVariableBindings(binding, flags, request)) {
-      if (!collectMethodBindings(binding, flags, request)) {
-        if (!collectTypeBindings(binding, flags, request)) {
-          if (!collectInheritedBindings(binding, flags, request)) {
-            if (!collectInterfaceBindings(binding, flags, request)) {
-              return false;
-            }
-          }
-        }
+    // declared fields, methods and member types, in that order
+    for (IBinding eachMember : members.getDeclaredMembers(binding, flags, getEnvironment())) {
+      if (request.accept(eachMember)) {
+        return true;
       }
     }
 
-    return true;
+    return collectInheritedBindings(binding, flags, request)
+      || collectInterfaceBindings(binding, flags, request);
   }
 
   private boolean collectInterfaceBindings(ITypeBinding binding, int flags, BindingRequest request) {
-    final ITypeBinding[] interfaces = binding.getInterfaces();
+    final ITypeBinding[] interfaces = members.getInterfaces(binding, getEnvironment());
     // includes looking for methods:  abstract and then unimplemented methods
     for (ITypeBinding eachInterface : interfaces) {
       if (collectsInheritedElements(eachInterface, flags, request)) {
@@ -173,43 +287,6 @@ public class ScopeAnalyser {
     return false;
   }
 
-  private static boolean collectTypeBindings(ITypeBinding binding, int flags, BindingRequest request) {
-    if (Scope.isTypesFlagAvailable(flags)) {
-      final ITypeBinding[] typeBindings = binding.getDeclaredTypes();
-      for (ITypeBinding eachTypeBinding : typeBindings) {
-        if (request.accept(eachTypeBinding))
-          return true;
-      }
-    }
-    return false;
-  }
-
-  private static boolean collectMethodBindings(ITypeBinding binding, int flags, BindingRequest request) {
-    if (Scope.isMethodsFlagAvailable(flags)) {
-      final IMethodBinding[] methodBindings = binding.getDeclaredMethods();
-      for (IMethodBinding eachMethodBindings : methodBindings) {
-        if (!eachMethodBindings.isSynthetic() && !eachMethodBindings.isConstructor()) {
-          if (request.accept(eachMethodBindings))
-            return true;
-        }
-      }
-    }
-    return false;
-  }
-
-  private static boolean collectVariableBindings(ITypeBinding binding, int flags, BindingRequest request) {
-    if (Scope.isVariablesFlagAvailable(flags)) {
-      final IVariableBinding[] variableBindings = binding.getDeclaredFields();
-      for (IVariableBinding eachVariableBinding : variableBindings) {
-        if (request.accept(eachVariableBinding))
-          return true;
-      }
-    }
-
-    return false;
-  }
-
-
   /**
    * Collects all elements available in a type: its hierarchy and its outer scopes.
    *
@@ -425,9 +502,7 @@ public class ScopeAnalyser {
     if (Scope.isVariablesFlagAvailable(flags) || Scope.isTypesFlagAvailable(flags)) {
       final BodyDeclaration declaration = findParentBodyDeclaration(node);
       if (declaration instanceof MethodDeclaration || declaration instanceof Initializer) {
-        final ScopeVisitor visitor = new ScopeVisitor(location, flags, request);
-        declaration.accept(visitor);
-        return visitor.isBreakStatement();
+        return getScopeTree().collect(declaration, location.getStart().getOffset(), flags, request);
       }
     }
     return false;
@@ -491,9 +566,10 @@ public class ScopeAnalyser {
 
 
   public IBinding[] getDeclarationsInScope(Location location, int flags) {
+    return getDeclarationsInScope(selectNodeWithinRange(root, location), location, flags);
+  }
 
-    final ASTNode node = selectNodeWithinRange(root, location);
-
+  private IBinding[] getDeclarationsInScope(ASTNode node, Location location, int flags) {
     if (node == null) {
       return Scope.EMPTY_BINDINGS;
     }
@@ -512,9 +588,8 @@ public class ScopeAnalyser {
 
       }
 
-      bindingsInMethod.addAll(getVariableDeclarations(node, flags));
-      bindingsInMethod.addAll(getFieldDeclarations(node, flags));
-      bindingsInMethod.addAll(getTypeDeclarations(node, flags));
+      bindingsInMethod.addAll(getIndexedDeclarations(node, flags, false));
+      bindingsInMethod.addAll(getIndexedDeclarations(node, flags, true));
 
       return bindingsInMethod.toArray(new IBinding[bindingsInMethod.size()]);
 
@@ -525,6 +600,94 @@ public class ScopeAnalyser {
     return Scope.EMPTY_BINDINGS;
   }
 
+  /**
+   * Gets the declarations in scope at many offsets at once. Each result is what
+   * {@link #getDeclarationsInScope(SimpleName, int)} returns for an unqualified
+   * name starting at that offset (or an empty array if no type encloses it).
+   *
+   * The offsets are visited in ascending order: one walk over the compilation
+   * unit finds their enclosing declarations, one ordered walk per method (or
+   * initializer) enters and leaves its local scopes, and the members of each
+   * enclosing type are collected only once.
+   *
+   * @param offsets the offsets of interest, in any order.
+   * @param flags the flags that specify the elements to report.
+   * @return the declarations in scope at each offset, in the offsets' order.
+   */
+  public IBinding[][] getDeclarationsInScope(int[] offsets, int flags) {
+    final int[]     order   = sortedIndices(Objects.requireNonNull(offsets));
+    final int[]     sorted  = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      sorted[i] = offsets[order[i]];
+    }
+
+    final EnclosingDeclarations enclosing = new EnclosingDeclarations(sorted);
+    root.accept(enclosing);
+
+    final BindingRequestBySignature[] requests = new BindingRequestBySignature[sorted.length];
+    final Map<BodyDeclaration, List<Integer>> byMethod = new IdentityHashMap<>();
+
+    for (int i = 0; i < sorted.length; i++) {
+      final ASTNode type = enclosing.types[i];
+      if (type == null) continue; // e.g., in an import declaration
+
+      final ITypeBinding parentTypeBinding = getBindingOfParentType(type);
+      if (parentTypeBinding == null) continue;
+
+      requests[i] = new BindingRequestBySignature(parentTypeBinding, flags);
+
+      final BodyDeclaration declaration = enclosing.bodies[i];
+      if (declaration instanceof MethodDeclaration || declaration instanceof Initializer) {
+        byMethod.computeIfAbsent(declaration, k -> new ArrayList<>()).add(i);
+      }
+    }
+
+    // local declarations come first, as in the single offset query
+    for (Map.Entry<BodyDeclaration, List<Integer>> each : byMethod.entrySet()) {
+      final List<Integer> indices = each.getValue();
+      final int[] methodOffsets = indices.stream().mapToInt(i -> sorted[i]).toArray();
+
+      getScopeTree().collect(each.getKey(), methodOffsets, flags, k -> requests[indices.get(k)]);
+    }
+
+    final Map<ITypeBinding, List<IBinding>> byType = new IdentityHashMap<>();
+    final IBinding[][] result = new IBinding[sorted.length][];
+
+    for (int i = 0; i < sorted.length; i++) {
+      final BindingRequestBySignature request = requests[i];
+      if (request == null) {
+        result[order[i]] = Scope.EMPTY_BINDINGS;
+        continue;
+      }
+
+      final ITypeBinding parentTypeBinding = request.getParentTypeBinding();
+      final List<IBinding> members = byType.computeIfAbsent(parentTypeBinding, k -> {
+        final List<IBinding> collected = new ArrayList<>();
+        try {
+          collectTypeDeclarations(k, flags, binding -> !collected.add(binding));
+        } finally {
+          clearVisitedBindings();
+        }
+
+        return collected;
+      });
+
+      members.forEach(request::accept);
+
+      final List<IBinding> requested = request.getRequestedBindings();
+      result[order[i]] = requested.toArray(new IBinding[requested.size()]);
+    }
+
+    return result;
+  }
+
+  private static int[] sortedIndices(int[] offsets) {
+    return IntStream.range(0, offsets.length).boxed()
+      .sorted(Comparator.comparingInt(i -> offsets[i]))
+      .mapToInt(Integer::intValue)
+      .toArray();
+  }
+
   public Set<IBinding> getAllBindings(Location location, ASTNode node) {
     final Set<IBinding> a = Sets.newHashSet(getDeclarationsInCompilationUnit(location, Scope.VARIABLES, node)).stream()
       .filter(onlyLocalVars(location.getSource().getName())).collect(Collectors.toSet());
@@ -702,7 +865,7 @@ public class ScopeAnalyser {
         return Scope.EMPTY_BINDINGS;
       }
 
-      final List<IBinding> bindings = getFieldDeclarations(node, flags);
+      final List<IBinding> bindings = getIndexedDeclarations(node, flags, true);
       return bindings.toArray(new IBinding[bindings.size()]);
     } finally {
       clearVisitedBindings();
@@ -760,6 +923,42 @@ public class ScopeAnalyser {
     return p -> !"Object".equals(ensureNonNullName(((ITypeBinding) p).getDeclaringClass()));
   }
 
+  /**
+   * Returns the declarations used (i.e., referenced by name) within a range
+   * of the compilation unit, in the order they are first used there. Each
+   * method overlapping the range answers from its def-use index.
+   *
+   * @param scope the range.
+   * @return the used declarations.
+   */
+  public List<IBinding> getUsedDeclarations(Location scope){
+    final int start = scope.getStart().getOffset();
+    final int end   = scope.getEnd().getOffset();
+
+    final List<MethodDeclaration> methods = new ArrayList<>();
+    root.accept(new ASTVisitor() {
+      @Override public boolean preVisit2(ASTNode node) {
+        // skips the subtrees outside the range
+        return node.getStartPosition() < end && start < node.getStartPosition() + node.getLength();
+      }
+
+      @Override public boolean visit(MethodDeclaration node) {
+        methods.add(node);
+        return false; // its index covers any nested method
+      }
+    });
+
+    final Set<IBinding> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+    final List<IBinding> result = new ArrayList<>();
+    for (MethodDeclaration each : methods) {
+      getDefUseIndex(each).getUsedDeclarations(start, end).stream()
+        .filter(seen::add)
+        .forEach(result::add);
+    }
+
+    return result;
+  }
+
   public Set<IBinding> getUsedLocalDeclarationsInScope(Location scope){
     return getDeclarationsWithinScope(scope, true);
   }
@@ -772,17 +971,20 @@ public class ScopeAnalyser {
   public Set<IBinding> getDeclarationsWithinScope(Location scope, boolean onlyLocalDeclarations) {
     final Predicate<IBinding> all = p -> true;
 
-    final Set<IBinding> methods = Sets.newHashSet(getDeclarationsInScope(scope, Scope.METHODS))
+    // selected once; within a method, each kind is then a range lookup in its def-use index
+    final ASTNode node = selectNodeWithinRange(root, scope);
+
+    final Set<IBinding> methods = Sets.newHashSet(getDeclarationsInScope(node, scope, Scope.METHODS))
       .stream()
       .filter(onlyLocalDeclarations ? onlyLocalMethods() : all)
       .collect(Collectors.toSet());
 
-    final Set<IBinding> fields = Sets.newHashSet(getDeclarationsInScope(scope, Scope.VARIABLES))
+    final Set<IBinding> fields = Sets.newHashSet(getDeclarationsInScope(node, scope, Scope.VARIABLES))
       .stream()
       .filter(onlyLocalDeclarations ? onlyLocalVars(scope.getSource().getName()) : all)
       .collect(Collectors.toSet());
 
-    final Set<IBinding> types = Sets.newHashSet(getDeclarationsInScope(scope, Scope.TYPES))
+    final Set<IBinding> types = Sets.newHashSet(getDeclarationsInScope(node, scope, Scope.TYPES))
       .stream()
       .filter(onlyLocalDeclarations ? onlyLocalInnerTypes() : all)
       .collect(Collectors.toSet());
@@ -790,5 +992,55 @@ public class ScopeAnalyser {
     return Sets.union(types, Sets.union(methods, fields));
   }
 
+  /**
+   * Finds the innermost body declaration and the innermost type declaration
+   * enclosing each of a sorted array of offsets, skipping any subtree that
+   * holds none of them.
+   */
+  private static class EnclosingDeclarations extends ASTVisitor {
+    final int[]             offsets;
+    final BodyDeclaration[] bodies;
+    final ASTNode[]         types;
+
+    EnclosingDeclarations(int[] offsets){
+      this.offsets  = offsets;
+      this.bodies   = new BodyDeclaration[offsets.length];
+      this.types    = new ASTNode[offsets.length]; // null if outside any type
+    }
+
+    @Override public boolean preVisit2(ASTNode node) {
+      final int start = node.getStartPosition();
+      final int end   = start + node.getLength();
+
+      int idx = lowerBound(offsets, start);
+      if (idx == offsets.length || offsets[idx] >= end) return false;
+
+      final boolean isBody = node instanceof BodyDeclaration;
+      final boolean isType = node instanceof AbstractTypeDeclaration || node instanceof AnonymousClassDeclaration;
+
+      // nodes are visited in preorder, so the deepest enclosing node is set last
+      for (; (isBody || isType) && idx < offsets.length && offsets[idx] < end; idx++) {
+        if (isBody) bodies[idx] = (BodyDeclaration) node;
+        if (isType) types[idx]  = node;
+      }
 
+      return true;
+    }
+
+    private static int lowerBound(int[] sorted, int key){
+      int low  = 0;
+      int high = sorted.length;
+
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (sorted[mid] < key) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+
+      return low;
+    }
+  }
 }
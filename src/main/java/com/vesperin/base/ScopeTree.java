@@ -0,0 +1,353 @@
+package com.vesperin.base;
+
+import com.vesperin.base.spi.BindingRequest;
+import org.eclipse.jdt.core.dom.*;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * The local scopes of a compilation unit, built in a single pass. Every method,
+ * initializer, block, lambda, catch clause, for, enhanced for, and switch
+ * statement is a scope, and so are the resources of a try statement (up to
+ * the end of its try block); each scope records the local variables,
+ * parameters, type parameters and local types it declares, in declaration
+ * order. A switch on an enum also reports the enum's constants at its case
+ * labels.
+ *
+ * A query at some offset descends from the enclosing method (or initializer)
+ * to the innermost scope holding that offset, and then reports what is declared
+ * before the offset, from the innermost scope outward (and, within a scope,
+ * from the last declaration to the first one).
+ *
+ * @author Huascar Sanchez
+ */
+public final class ScopeTree {
+  private final Map<BodyDeclaration, Node> roots;
+
+  private ScopeTree(Map<BodyDeclaration, Node> roots){
+    this.roots = roots;
+  }
+
+  /**
+   * Builds the scope tree of a compilation unit; bindings should be resolved.
+   *
+   * @param root the compilation unit.
+   * @return a new scope tree.
+   */
+  public static ScopeTree of(CompilationUnit root){
+    final Map<BodyDeclaration, Node> roots = new IdentityHashMap<>();
+    Objects.requireNonNull(root).accept(new Builder(roots));
+    return new ScopeTree(roots);
+  }
+
+  /**
+   * Reports the local declarations visible at some offset of a method or
+   * initializer to a binding request.
+   *
+   * @param declaration the method or initializer holding the offset.
+   * @param offset the offset of interest.
+   * @param flags the flags that specify the elements to report.
+   * @param request the request to which all results are reported.
+   * @return true if the request has reported the binding as found and no
+   *    further results are required; false otherwise.
+   */
+  public boolean collect(BodyDeclaration declaration, int offset, int flags, BindingRequest request){
+    final Node root = roots.get(declaration);
+    if(root == null || !root.holds(offset)) return false;
+
+    // the path from the root to the innermost scope holding the offset
+    final List<Node> path = new ArrayList<>();
+    for(Node scope = root; scope != null; scope = scope.childHolding(offset)){
+      path.add(scope);
+    }
+
+    return report(path, offset, flags, request);
+  }
+
+  /**
+   * Reports the local declarations visible at many offsets of a method or
+   * initializer, in one ordered walk: scopes are entered and left as the
+   * offsets move forward, rather than searched from the root at each offset.
+   *
+   * @param declaration the method or initializer holding the offsets.
+   * @param offsets the offsets of interest, in ascending order.
+   * @param flags the flags that specify the elements to report.
+   * @param requests the request to which the results of each offset (by index)
+   *    are reported.
+   */
+  public void collect(BodyDeclaration declaration, int[] offsets, int flags, IntFunction<BindingRequest> requests){
+    final Node root = roots.get(declaration);
+    if(root == null) return;
+
+    final List<Node> path = new ArrayList<>();
+    path.add(root);
+
+    for(int idx = 0; idx < offsets.length; idx++){
+      final int offset = offsets[idx];
+      if(!root.holds(offset)) continue;
+
+      // leaves the scopes that end before this offset...
+      while(!path.get(path.size() - 1).holds(offset)){
+        path.remove(path.size() - 1);
+      }
+
+      // ...and enters the ones holding it
+      for(Node scope = path.get(path.size() - 1).childHolding(offset); scope != null; scope = scope.childHolding(offset)){
+        path.add(scope);
+      }
+
+      report(path, offset, flags, requests.apply(idx));
+    }
+  }
+
+  private static boolean report(List<Node> path, int offset, int flags, BindingRequest request){
+    final boolean variables = Scope.isVariablesFlagAvailable(flags);
+    final boolean types     = Scope.isTypesFlagAvailable(flags);
+
+    if(!variables && !types) return false;
+
+    for(int depth = path.size() - 1; depth >= 0; depth--){
+      final List<Declaration> declarations = path.get(depth).declarations;
+      for(int idx = declarations.size() - 1; idx >= 0; idx--){
+        final Declaration each = declarations.get(idx);
+        if(each.isVisible(offset, variables, types) && each.accept(request)){
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @return the number of methods and initializers with local scopes.
+   */
+  public int size(){
+    return roots.size();
+  }
+
+  @Override public String toString() {
+    return "ScopeTree(roots=" + size() + ")";
+  }
+
+  private static class Node {
+    final int               start;
+    final int               end;
+    final List<Node>        children;
+    final List<Declaration> declarations;
+
+    Node(ASTNode node){
+      this(node.getStartPosition(), node.getStartPosition() + node.getLength());
+    }
+
+    Node(int start, int end){
+      this.start        = start;
+      this.end          = end;
+      this.children     = new ArrayList<>();
+      this.declarations = new ArrayList<>();
+    }
+
+    boolean holds(int offset){
+      return start <= offset && offset < end;
+    }
+
+    Node childHolding(int offset){
+      // children are added in source order and do not overlap
+      int low  = 0;
+      int high = children.size() - 1;
+
+      while(low <= high){
+        final int  mid   = (low + high) >>> 1;
+        final Node child = children.get(mid);
+
+        if(offset < child.start){
+          high = mid - 1;
+        } else if(offset >= child.end){
+          low = mid + 1;
+        } else {
+          return child;
+        }
+      }
+
+      return null;
+    }
+  }
+
+  private static class Declaration {
+    final ASTNode node;
+
+    Declaration(ASTNode node){
+      this.node = node;
+    }
+
+    boolean isVisible(int offset, boolean variables, boolean types){
+      switch (node.getNodeType()){
+        case ASTNode.TYPE_PARAMETER:
+          return types && node.getStartPosition() < offset;
+        case ASTNode.TYPE_DECLARATION_STATEMENT:
+          return types && node.getStartPosition() + node.getLength() < offset;
+        case ASTNode.SWITCH_CASE: {
+          // only at the case's own label
+          final Expression label = ((SwitchCase) node).getExpression();
+          final int        start = label.getStartPosition();
+          return variables && start <= offset && offset <= start + label.getLength();
+        }
+        default:
+          return variables && node.getStartPosition() < offset;
+      }
+    }
+
+    boolean accept(BindingRequest request){
+      switch (node.getNodeType()){
+        case ASTNode.TYPE_PARAMETER:
+          return request.accept(((TypeParameter) node).getName().resolveBinding());
+        case ASTNode.TYPE_DECLARATION_STATEMENT:
+          return request.accept(((TypeDeclarationStatement) node).resolveBinding());
+        case ASTNode.SWITCH_CASE:
+          return acceptEnumConstants((SwitchStatement) node.getParent(), request);
+        default:
+          return request.accept(((VariableDeclaration) node).resolveBinding());
+      }
+    }
+
+    private static boolean acceptEnumConstants(SwitchStatement statement, BindingRequest request){
+      // switch on enum allows to use enum constants without qualification
+      final ITypeBinding binding = statement.getExpression().resolveTypeBinding();
+      if(binding == null || !binding.isEnum()) return false;
+
+      for(IVariableBinding each : binding.getDeclaredFields()){
+        if(each.isEnumConstant() && request.accept(each)){
+          return true;
+        }
+      }
+
+      return false;
+    }
+  }
+
+  /**
+   * Builds the scopes of every method and initializer, including the ones of
+   * local and anonymous classes; those get their own roots.
+   */
+  private static class Builder extends ASTVisitor {
+    final Map<BodyDeclaration, Node> roots;
+    final Deque<Node>                scopes;
+
+    Builder(Map<BodyDeclaration, Node> roots){
+      this.roots  = roots;
+      this.scopes = new LinkedList<>(); // null marks "outside of any local scope"
+    }
+
+    @Override public boolean preVisit2(ASTNode node) {
+      if(node.getStartPosition() < 0) return false;
+
+      switch (node.getNodeType()){
+        case ASTNode.TYPE_DECLARATION:
+        case ASTNode.ENUM_DECLARATION:
+        case ASTNode.ANNOTATION_TYPE_DECLARATION:
+        case ASTNode.ANONYMOUS_CLASS_DECLARATION:
+          // members of a nested class are not in the enclosing scopes
+          scopes.push(null);
+          break;
+
+        case ASTNode.METHOD_DECLARATION:
+        case ASTNode.INITIALIZER: {
+          final Node root = new Node(node);
+          roots.put((BodyDeclaration) node, root);
+          scopes.push(root);
+          break;
+        }
+
+        case ASTNode.BLOCK:
+        case ASTNode.LAMBDA_EXPRESSION:
+        case ASTNode.CATCH_CLAUSE:
+        case ASTNode.FOR_STATEMENT:
+        case ASTNode.ENHANCED_FOR_STATEMENT:
+        case ASTNode.SWITCH_STATEMENT:
+          enter(new Node(node));
+          break;
+
+        case ASTNode.TRY_STATEMENT: {
+          // resources are only in scope in the try block
+          final TryStatement statement = (TryStatement) node;
+          if(hasResourceScope(statement)){
+            final Block body  = statement.getBody();
+            enter(new Node(statement.getStartPosition(), body.getStartPosition() + body.getLength()));
+          }
+          break;
+        }
+
+        case ASTNode.SWITCH_CASE:
+          if(((SwitchCase) node).getExpression() != null){
+            declare(node);
+          }
+          break;
+
+        case ASTNode.SINGLE_VARIABLE_DECLARATION:
+        case ASTNode.VARIABLE_DECLARATION_FRAGMENT:
+        case ASTNode.TYPE_PARAMETER:
+        case ASTNode.TYPE_DECLARATION_STATEMENT:
+          declare(node);
+          break;
+      }
+
+      return true;
+    }
+
+    @Override public void postVisit(ASTNode node) {
+      if(node.getStartPosition() < 0) return;
+
+      switch (node.getNodeType()){
+        case ASTNode.TYPE_DECLARATION:
+        case ASTNode.ENUM_DECLARATION:
+        case ASTNode.ANNOTATION_TYPE_DECLARATION:
+        case ASTNode.ANONYMOUS_CLASS_DECLARATION:
+        case ASTNode.METHOD_DECLARATION:
+        case ASTNode.INITIALIZER:
+        case ASTNode.BLOCK:
+        case ASTNode.LAMBDA_EXPRESSION:
+        case ASTNode.CATCH_CLAUSE:
+        case ASTNode.FOR_STATEMENT:
+        case ASTNode.ENHANCED_FOR_STATEMENT:
+        case ASTNode.SWITCH_STATEMENT:
+          scopes.pop();
+          break;
+      }
+
+      // leaves the resources' scope along with the try block
+      if(node.getLocationInParent() == TryStatement.BODY_PROPERTY
+        && hasResourceScope((TryStatement) node.getParent())){
+        scopes.pop();
+      }
+    }
+
+    private static boolean hasResourceScope(TryStatement statement){
+      // the scope is left when the try block is, so that block must be visited
+      return !statement.resources().isEmpty() && statement.getBody().getStartPosition() >= 0;
+    }
+
+    private void enter(Node scope){
+      final Node parent = scopes.peek();
+      if(parent == null){
+        scopes.push(null);
+      } else {
+        parent.children.add(scope);
+        scopes.push(scope);
+      }
+    }
+
+    private void declare(ASTNode node){
+      final Node scope = scopes.peek();
+      if(scope == null) return; // e.g., a field, or a type's type parameter
+
+      scope.declarations.add(new Declaration(node));
+    }
+  }
+}
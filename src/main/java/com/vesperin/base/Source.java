@@ -3,6 +3,8 @@ package com.vesperin.base;
 import com.google.common.base.Predicates;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
+import com.vesperin.base.locations.IdentifierIndex;
+import com.vesperin.base.locations.LineIndex;
 import com.vesperin.base.utils.SourceFormat;
 import com.vesperin.base.utils.StringTemplate;
 
@@ -23,6 +25,8 @@ public class Source {
   private final String name;
   private final String content;
 
+  private volatile LineIndex        lineIndex;
+  private volatile IdentifierIndex  identifierIndex;
 
   /**
    * Construct a source object.
@@ -130,6 +134,38 @@ public class Source {
     return this.content;
   }
 
+  /**
+   * Returns the line index of this source file's content. It is built on first
+   * use and then cached; building it twice under contention is harmless.
+   *
+   * @return the line index.
+   */
+  public LineIndex getLineIndex(){
+    LineIndex index = lineIndex;
+    if(index == null){
+      index = LineIndex.of(getContent());
+      lineIndex = index;
+    }
+
+    return index;
+  }
+
+  /**
+   * Returns the identifier index of this source file's content. It is built on
+   * first use and then cached.
+   *
+   * @return the identifier index.
+   */
+  public IdentifierIndex getIdentifierIndex(){
+    IdentifierIndex index = identifierIndex;
+    if(index == null){
+      index = IdentifierIndex.of(getContent());
+      identifierIndex = index;
+    }
+
+    return index;
+  }
+
   @Override public int hashCode() {
     return Objects.hash(getName(), getContent());
   }
@@ -0,0 +1,194 @@
+package com.vesperin.base;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Walks a directory tree, parses every {@code .java} file in it, and hands each
+ * parsed {@link Context} to a callback. Memory stays bounded: at most a given
+ * number of bytes worth of source files are read, parsed or being handled by
+ * the callback at any time; a context is no longer referenced by the analyzer
+ * once the callback returns.
+ *
+ * The callback is invoked from worker threads; possibly concurrently.
+ *
+ * @author Huascar Sanchez
+ */
+public class SourceTreeAnalyzer {
+  private static final String JAVA_EXTENSION       = ".java";
+  private static final long   DEFAULT_BYTES_BUDGET = 64L * 1024 * 1024;
+
+  private final JavaParser  parser;
+  private final ParseLevel  level;
+  private final int         parallelism;
+  private final long        maxInFlightBytes;
+
+  private long inFlightBytes;
+
+  /**
+   * Constructs a SourceTreeAnalyzer backed by the default {@link ParserEngine}.
+   */
+  public SourceTreeAnalyzer(){
+    this(
+      ParserEngine.getDefault(),
+      ParseLevel.BINDINGS,
+      Runtime.getRuntime().availableProcessors(),
+      DEFAULT_BYTES_BUDGET
+    );
+  }
+
+  /**
+   * Constructs a SourceTreeAnalyzer.
+   *
+   * @param parser the parser; it must be safe to call from many threads
+   *    (e.g., a {@link ParserEngine}) unless parallelism is 1.
+   * @param level the parse level.
+   * @param parallelism the number of files parsed at the same time.
+   * @param maxInFlightBytes the maximum number of bytes of source files held in
+   *    memory at the same time. A single file larger than this budget is still
+   *    analyzed, but on its own.
+   */
+  public SourceTreeAnalyzer(JavaParser parser, ParseLevel level, int parallelism, long maxInFlightBytes){
+    if(parallelism < 1){
+      throw new IllegalArgumentException("Error: Invalid parallelism");
+    }
+
+    if(maxInFlightBytes < 1){
+      throw new IllegalArgumentException("Error: Invalid bytes budget");
+    }
+
+    this.parser           = Objects.requireNonNull(parser);
+    this.level            = Objects.requireNonNull(level);
+    this.parallelism      = parallelism;
+    this.maxInFlightBytes = maxInFlightBytes;
+    this.inFlightBytes    = 0;
+  }
+
+  /**
+   * Analyzes every Java file under a directory. Files that cannot be parsed
+   * are skipped.
+   *
+   * @param root the directory to walk.
+   * @param callback the consumer of parsed contexts.
+   * @return the number of files handed to the callback.
+   * @throws IOException if the directory cannot be walked.
+   */
+  public long analyze(Path root, Consumer<Context> callback) throws IOException {
+    return analyze(root, callback, (file, error) -> {});
+  }
+
+  /**
+   * Analyzes every Java file under a directory.
+   *
+   * @param root the directory to walk.
+   * @param callback the consumer of parsed contexts.
+   * @param errors the consumer of files that could not be read, parsed, or
+   *    handled by the callback.
+   * @return the number of files handed to the callback.
+   * @throws IOException if the directory cannot be walked.
+   */
+  public long analyze(Path root, Consumer<Context> callback, BiConsumer<Path, RuntimeException> errors) throws IOException {
+    Objects.requireNonNull(callback);
+    Objects.requireNonNull(errors);
+
+    final AtomicLong      analyzed = new AtomicLong(0);
+    final ExecutorService service  = Executors.newFixedThreadPool(parallelism);
+
+    try (Stream<Path> files = Files.walk(Objects.requireNonNull(root))) {
+      final Iterator<Path> iterator = files
+        .filter(Files::isRegularFile)
+        .filter(each -> each.getFileName().toString().endsWith(JAVA_EXTENSION))
+        .iterator();
+
+      while(iterator.hasNext()){
+        final Path file  = iterator.next();
+        final long bytes = Math.min(Files.size(file), maxInFlightBytes);
+
+        acquire(bytes);
+
+        service.execute(() -> {
+          try {
+            callback.accept(parser.parseJava(read(file), level));
+            analyzed.incrementAndGet();
+          } catch (RuntimeException error){
+            errors.accept(file, error);
+          } finally {
+            release(bytes);
+          }
+        });
+      }
+    } catch (InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new IOException("Error: Interrupted while analyzing " + root, e);
+    } finally {
+      service.shutdown();
+    }
+
+    try {
+      service.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new IOException("Error: Interrupted while analyzing " + root, e);
+    }
+
+    return analyzed.get();
+  }
+
+  private static Source read(Path file){
+    final String name = file.getFileName().toString();
+
+    try {
+      return Source.from(
+        name.substring(0, name.length() - JAVA_EXTENSION.length()),
+        new String(Files.readAllBytes(file), StandardCharsets.UTF_8)
+      );
+    } catch (IOException e){
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private synchronized void acquire(long bytes) throws InterruptedException {
+    while(inFlightBytes > 0 && inFlightBytes + bytes > maxInFlightBytes){
+      wait();
+    }
+
+    inFlightBytes += bytes;
+  }
+
+  private synchronized void release(long bytes){
+    inFlightBytes -= bytes;
+    notifyAll();
+  }
+
+  /**
+   * @return the number of files parsed at the same time.
+   */
+  public int getParallelism(){
+    return parallelism;
+  }
+
+  /**
+   * @return the maximum number of bytes of source files held in memory at the same time.
+   */
+  public long getMaxInFlightBytes(){
+    return maxInFlightBytes;
+  }
+
+  @Override public String toString() {
+    return "SourceTreeAnalyzer(parallelism=" + getParallelism()
+      + ", maxInFlightBytes=" + getMaxInFlightBytes()
+      + ")";
+  }
+}
@@ -0,0 +1,124 @@
+package com.vesperin.base.locations;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.compiler.IScanner;
+import org.eclipse.jdt.core.compiler.ITerminalSymbols;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable index of the identifier tokens in some content, built in a single
+ * pass of JDT's scanner. Identifiers appearing only inside comments, string
+ * literals or character literals are not indexed, since they are not tokens.
+ *
+ * @author Huascar Sanchez
+ */
+public final class IdentifierIndex {
+  private static final int[] NO_OCCURRENCES = new int[0];
+
+  private final Map<String, int[]> occurrences;
+
+  private IdentifierIndex(Map<String, int[]> occurrences){
+    this.occurrences = occurrences;
+  }
+
+  /**
+   * Builds the identifier index of some content. Characters the scanner cannot
+   * tokenize (e.g., an unterminated string) are skipped.
+   *
+   * @param content the content to index.
+   * @return a new identifier index.
+   */
+  public static IdentifierIndex of(String content){
+    final char[] chars = Objects.requireNonNull(content).toCharArray();
+
+    final IScanner scanner = ToolFactory.createScanner(
+      false, false, false, JavaCore.VERSION_1_8, JavaCore.VERSION_1_8
+    );
+
+    scanner.setSource(chars);
+
+    final Map<String, Occurrences> found = new HashMap<>();
+
+    int token = ITerminalSymbols.TokenNameEOF;
+    do {
+      try {
+        token = scanner.getNextToken();
+      } catch (InvalidInputException ignored){
+        // resumes right after the offending input
+        final int next = Math.max(
+          scanner.getCurrentTokenStartPosition() + 1,
+          scanner.getCurrentTokenEndPosition() + 1
+        );
+
+        scanner.resetTo(next, chars.length - 1);
+        token = ITerminalSymbols.TokenNameWHITESPACE;
+        continue;
+      }
+
+      if(token == ITerminalSymbols.TokenNameIdentifier){
+        found.computeIfAbsent(new String(scanner.getRawTokenSource()), k -> new Occurrences())
+          .add(scanner.getCurrentTokenStartPosition());
+      }
+    } while(token != ITerminalSymbols.TokenNameEOF);
+
+    final Map<String, int[]> trimmed = new HashMap<>(found.size());
+    for(Map.Entry<String, Occurrences> each : found.entrySet()){
+      trimmed.put(each.getKey(), each.getValue().toArray());
+    }
+
+    return new IdentifierIndex(trimmed);
+  }
+
+  /**
+   * Returns the start offsets of an identifier's occurrences.
+   *
+   * @param identifier the identifier of interest.
+   * @return the sorted start offsets; empty if the identifier does not occur.
+   */
+  public int[] getOccurrences(String identifier){
+    final int[] starts = occurrences.get(identifier);
+    return starts == null ? NO_OCCURRENCES : starts.clone();
+  }
+
+  /**
+   * @param identifier the identifier of interest.
+   * @return true if the identifier occurs at least once; false otherwise.
+   */
+  public boolean contains(String identifier){
+    return occurrences.containsKey(identifier);
+  }
+
+  /**
+   * @return the number of distinct identifiers.
+   */
+  public int size(){
+    return occurrences.size();
+  }
+
+  @Override public String toString() {
+    return "IdentifierIndex(size=" + size() + ")";
+  }
+
+  private static class Occurrences {
+    int[] starts = new int[4];
+    int   count  = 0;
+
+    void add(int start){
+      if(count == starts.length){
+        starts = Arrays.copyOf(starts, count * 2);
+      }
+
+      starts[count++] = start;
+    }
+
+    int[] toArray(){
+      return Arrays.copyOf(starts, count);
+    }
+  }
+}
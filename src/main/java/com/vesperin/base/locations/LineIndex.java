@@ -0,0 +1,121 @@
+package com.vesperin.base.locations;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An immutable table of line start offsets for some content. Lines end at
+ * {@code \r\n}, {@code \r} or {@code \n}. Converting an offset into a
+ * {@link Position} is a binary search over this table.
+ *
+ * @author Huascar Sanchez
+ */
+public final class LineIndex {
+  private final String  content;
+  private final int[]   lineStarts;
+
+  private LineIndex(String content, int[] lineStarts){
+    this.content    = content;
+    this.lineStarts = lineStarts;
+  }
+
+  /**
+   * Builds the line index of some content.
+   *
+   * @param content the content to index.
+   * @return a new line index.
+   */
+  public static LineIndex of(String content){
+    final String nonNull = Objects.requireNonNull(content);
+    final int    size    = nonNull.length();
+
+    int[] starts = new int[16];
+    int   count  = 1; // line 0 starts at offset 0
+
+    for(int offset = 0; offset < size; offset++){
+      final char c = nonNull.charAt(offset);
+
+      final boolean lineBreak = (c == '\n')
+        || (c == '\r' && (offset + 1 == size || nonNull.charAt(offset + 1) != '\n'));
+
+      if(lineBreak){
+        if(count == starts.length){
+          starts = Arrays.copyOf(starts, count * 2);
+        }
+
+        starts[count++] = offset + 1;
+      }
+    }
+
+    return new LineIndex(nonNull, Arrays.copyOf(starts, count));
+  }
+
+  /**
+   * @return the number of lines.
+   */
+  public int getLineCount(){
+    return lineStarts.length;
+  }
+
+  /**
+   * Returns the offset at which a given line starts.
+   *
+   * @param line the 0-based line number.
+   * @return the start offset of that line.
+   */
+  public int getLineStart(int line){
+    return lineStarts[line];
+  }
+
+  /**
+   * Converts an offset into a position. The {@code \n} of a {@code \r\n} pair
+   * is considered the first character of the next line.
+   *
+   * @param offset the offset; it must be within [0, content length].
+   * @return the position (line, column, offset) of that offset.
+   */
+  public Position getPosition(int offset){
+    final int line = getLine(offset);
+    return Locations.createPosition(line, getColumn(line, offset), offset);
+  }
+
+  /**
+   * Converts an offset into a line number, without creating a position; see
+   * {@link #getPosition(int)}.
+   *
+   * @param offset the offset; it must be within [0, content length].
+   * @return the 0-based line number of that offset.
+   */
+  public int getLine(int offset){
+    if(offset < 0 || offset > content.length()){
+      throw new IllegalArgumentException("Error: Invalid offset");
+    }
+
+    int line = Arrays.binarySearch(lineStarts, offset);
+    if(line < 0){
+      line = -line - 2; // the line starting right before offset
+    }
+
+    return isSplitLineBreak(offset) ? line + 1 : line;
+  }
+
+  /**
+   * @return the length of the indexed content.
+   */
+  public int getContentLength(){
+    return content.length();
+  }
+
+  private int getColumn(int line, int offset){
+    return isSplitLineBreak(offset) ? 0 : offset - lineStarts[line];
+  }
+
+  private boolean isSplitLineBreak(int offset){
+    return offset > 0 && offset < content.length()
+      && content.charAt(offset) == '\n' && content.charAt(offset - 1) == '\r';
+  }
+
+  @Override public String toString() {
+    return "LineIndex(lines=" + getLineCount() + ")";
+  }
+}
@@ -0,0 +1,124 @@
+package com.vesperin.base.locations;
+
+import com.vesperin.base.Source;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of locations in a single source file, backed by a pair of
+ * int arrays. Elements are created on access (as {@link PackedLocation}s); bulk
+ * consumers should read {@link #getStartOffset(int)} and
+ * {@link #getEndOffset(int)} instead.
+ *
+ * @author Huascar Sanchez
+ */
+public final class LocationList extends AbstractList<Location> implements RandomAccess {
+  private final Source    code;
+  private final LineIndex lines;
+  private final int[]     starts;
+  private final int[]     ends;
+
+  private LocationList(Source code, LineIndex lines, int[] starts, int[] ends){
+    this.code   = code;
+    this.lines  = lines;
+    this.starts = starts;
+    this.ends   = ends;
+  }
+
+  /**
+   * Creates a new builder of locations in a source file.
+   *
+   * @param code the source file.
+   * @return a new builder.
+   */
+  public static Builder builder(Source code){
+    return new Builder(Objects.requireNonNull(code), code.getLineIndex());
+  }
+
+  @Override public Location get(int index) {
+    return new PackedLocation(code, lines, starts[index], ends[index]);
+  }
+
+  @Override public int size() {
+    return starts.length;
+  }
+
+  /**
+   * @param index the location's index.
+   * @return the location's start offset.
+   */
+  public int getStartOffset(int index){
+    return starts[index];
+  }
+
+  /**
+   * @param index the location's index.
+   * @return the location's end offset.
+   */
+  public int getEndOffset(int index){
+    return ends[index];
+  }
+
+  /**
+   * @return the source file holding these locations.
+   */
+  public Source getSource(){
+    return code;
+  }
+
+  /**
+   * Collects locations (as offset pairs) into a {@link LocationList}. Offsets
+   * are clamped to the source's content, as in
+   * {@link Locations#createLocation(Source, String, int, int)}.
+   */
+  public static final class Builder {
+    private final Source    code;
+    private final LineIndex lines;
+
+    private int[] starts = new int[8];
+    private int[] ends   = new int[8];
+    private int   count  = 0;
+
+    Builder(Source code, LineIndex lines){
+      this.code   = code;
+      this.lines  = lines;
+    }
+
+    /**
+     * Adds a location.
+     *
+     * @param startOffset the starting offset.
+     * @param endOffset the ending offset.
+     * @return this builder.
+     */
+    public Builder add(int startOffset, int endOffset){
+      if (startOffset < 0 || endOffset < startOffset) {
+        throw new IllegalArgumentException("Invalid offsets");
+      }
+
+      if(count == starts.length){
+        starts = Arrays.copyOf(starts, count * 2);
+        ends   = Arrays.copyOf(ends, count * 2);
+      }
+
+      final int end   = Math.min(endOffset, lines.getContentLength());
+      final int start = Math.min(startOffset, end);
+
+      starts[count] = start;
+      ends[count]   = end;
+      count++;
+
+      return this;
+    }
+
+    /**
+     * @return a new location list holding the locations added so far.
+     */
+    public LocationList build(){
+      return new LocationList(code, lines, Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+    }
+  }
+}
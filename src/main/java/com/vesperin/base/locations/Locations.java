@@ -5,6 +5,7 @@ import com.vesperin.base.utils.Jdt;
 import org.eclipse.jdt.core.ISourceRange;
 import org.eclipse.jdt.core.dom.ASTNode;
 
+import javax.lang.model.SourceVersion;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -86,38 +87,39 @@ public class Locations {
     endOffset   = Math.min(endOffset, size);
     startOffset = Math.min(startOffset, endOffset);
 
-    Position start = null;
-
-    int line        = 0;
-    int lineOffset  = 0;
-    char prev       = 0;
-
-    for (int offset = 0; offset <= size; offset++) {
-      if (offset == startOffset) {
-        start = createPosition(line, offset - lineOffset, offset);
-      }
-
-      if (offset == endOffset) {
-        final Position end = createPosition(line, offset - lineOffset, offset);
-        return createLocation(code, start, end);
-      }
-
-      char c = contents.charAt(offset);
+    // lines and columns are derived on demand from the line index
+    return new PackedLocation(code, lineIndex(code, contents), startOffset, endOffset);
+  }
 
-      if (c == '\n') {
-        lineOffset = offset + 1;
-        if (prev != '\r') {
-          line++;
-        }
-      } else if (c == '\r') {
-        line++;
-        lineOffset = offset + 1;
-      }
+  /**
+   * Creates many locations in a source file at once. Positions are derived from
+   * the source's line index, which is built (in a single pass over the content)
+   * once per source; so converting many offsets costs a pass over the content
+   * at most, and no position objects until they are asked for.
+   *
+   * @param code the {@link Source} object containing the locations
+   * @param starts the starting offsets
+   * @param ends the ending offsets; one per starting offset
+   * @return the new locations, in input order
+   */
+  public static List<Location> createLocations(Source code, int[] starts, int[] ends){
+    if (starts.length != ends.length) {
+      throw new IllegalArgumentException("Invalid offsets");
+    }
 
-      prev = c;
+    final LocationList.Builder locations = LocationList.builder(code);
+    for (int idx = 0; idx < starts.length; idx++) {
+      locations.add(starts[idx], ends[idx]);
     }
 
-    return createLocation(code);
+    return locations.build();
+  }
+
+  private static LineIndex lineIndex(Source code, String contents){
+    // the source's cached index is only good for its own content
+    return (code != null && contents.equals(code.getContent()))
+        ? code.getLineIndex()
+        : LineIndex.of(contents);
   }
 
 
@@ -196,7 +198,9 @@ public class Locations {
   }
 
   /**
-   * Locates a word in the {@code Source}
+   * Locates a word in the {@code Source}. If the word is a Java identifier, only
+   * its occurrences as an identifier token are located (see {@link IdentifierIndex});
+   * occurrences inside comments and literals are ignored.
    *
    * @param code The {@code Source} to be inspected.
    * @param word The word to be located
@@ -204,9 +208,19 @@ public class Locations {
    * @return The location of the word in the {@code Source}
    */
   public static List<Location> locateWord(Source code, String word){
+    if(isJavaIdentifier(word)){
+      final LocationList.Builder locations = LocationList.builder(code);
+
+      for(int start : code.getIdentifierIndex().getOccurrences(word)){
+        locations.add(start, start + word.length());
+      }
+
+      return locations.build();
+    }
+
     final List<Location> locations = new ArrayList<>();
 
-    final String  REGEX     = "\\b" + word + "\\b";
+    final String  REGEX     = "\\b" + Pattern.quote(word) + "\\b";
     final Pattern pattern   = Pattern.compile(REGEX);
     final Matcher matcher   = pattern.matcher(code.getContent());
 
@@ -227,6 +241,11 @@ public class Locations {
     return locations;
   }
 
+  private static boolean isJavaIdentifier(String word){
+    // keywords and literals (e.g., int, null) are never identifier tokens
+    return word != null && SourceVersion.isIdentifier(word) && !SourceVersion.isKeyword(word);
+  }
+
   public static boolean isBeforeBaseLocation(Location base, Location other){
     final Position otherEnd     = other.getEnd();
     final int nodeEnd           = otherEnd.getOffset();
@@ -0,0 +1,89 @@
+package com.vesperin.base.locations;
+
+import com.vesperin.base.Source;
+
+import java.util.Objects;
+
+/**
+ * A compact location: start and end offsets are kept as plain ints, and lines
+ * and columns are derived from a {@link LineIndex} only when positions are
+ * asked for. Behaves exactly like a {@link SourceLocation} built from the same
+ * offsets.
+ *
+ * @author Huascar Sanchez
+ */
+public final class PackedLocation implements Location {
+  private final Source    code;
+  private final LineIndex lines;
+  private final int       start;
+  private final int       end;
+
+  /**
+   * Constructs a new packed location.
+   *
+   * @param code the associated code snippet; may be null.
+   * @param lines the line index of the content holding this location.
+   * @param start the start offset.
+   * @param end the end offset.
+   */
+  public PackedLocation(Source code, LineIndex lines, int start, int end){
+    this.lines = Objects.requireNonNull(lines);
+
+    if(start < 0 || end < start || end > lines.getContentLength()){
+      throw new IllegalArgumentException("Invalid offsets");
+    }
+
+    this.code   = code;
+    this.start  = start;
+    this.end    = end;
+  }
+
+  @Override public int compareTo(Location location) {
+    // same order as SourceLocation; i.e., by start line, then by end line
+    final int lineDiff = lines.getLine(start) - location.getStart().getLine();
+
+    if (lineDiff != 0) {
+      return lineDiff;
+    }
+
+    return lines.getLine(end) - location.getEnd().getLine();
+  }
+
+  @Override public boolean begins(Position start) {
+    return this.start <= start.getOffset();
+  }
+
+  @Override public boolean ends(Position end) {
+    return this.end <= end.getOffset();
+  }
+
+  @Override public Source getSource() {
+    return code;
+  }
+
+  @Override public Position getStart() {
+    return lines.getPosition(start);
+  }
+
+  @Override public Position getEnd() {
+    return lines.getPosition(end);
+  }
+
+  /**
+   * @return the start offset; no position is created.
+   */
+  public int getStartOffset(){
+    return start;
+  }
+
+  /**
+   * @return the end offset; no position is created.
+   */
+  public int getEndOffset(){
+    return end;
+  }
+
+  @Override public String toString() {
+    return "Location(start=" + getStart() + ", end=" + getEnd() + ")";
+  }
+}
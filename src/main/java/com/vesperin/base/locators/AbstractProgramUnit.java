@@ -3,15 +3,16 @@ package com.vesperin.base.locators;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.vesperin.base.Context;
-import com.vesperin.base.locations.Location;
 import com.vesperin.base.locations.Locations;
-import com.vesperin.base.utils.Jdt;
-import com.vesperin.base.visitors.StatementsSelectionVisitor;
 import org.eclipse.jdt.core.dom.ASTNode;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author Huascar Sanchez
@@ -33,62 +34,52 @@ abstract class AbstractProgramUnit implements ProgramUnit {
     return name;
   }
 
-
-  protected static <T extends ASTNode> boolean contains(List<UnitLocation> nodes, T node){
-    for(Location each : nodes){
-      final UnitLocation pul = (UnitLocation)each;
-      if(pul.getUnitNode().equals(node) || pul.getUnitNode() == node ) return true;
-    }
-
-    return false;
-  }
-
-  protected static <T extends ASTNode> T parent(Class<T> klass, ASTNode node){
-    return Jdt.parent(klass, node);
+  /**
+   * Relocates a list of indexed declarations at their whole source ranges; a
+   * declaration indexed under several names (e.g., int a, b;) shows up once.
+   *
+   * @param declarations the indexed declarations.
+   * @return the declarations located at their whole source ranges.
+   */
+  protected static List<UnitLocation> wholeDeclarations(List<UnitLocation> declarations){
+    return wholeDeclarations(declarations.stream()).collect(Collectors.toList());
   }
 
-
-  protected List<UnitLocation> findLocationsByIdentifier(Context parsedContext){
-    Objects.requireNonNull(parsedContext);
-
-    final List<UnitLocation> locations = new ArrayList<>();
-    final List<Location> instances = Locations.locateWord(parsedContext.getSource(), getIdentifier());
-
-    for(Location each : instances){
-
-      addLocations(parsedContext, locations, each);
-    }
-
-
-    return locations;
+  /**
+   * Lazily relocates a stream of indexed declarations at their whole source
+   * ranges; duplicates are dropped via an identity set.
+   *
+   * @param declarations the indexed declarations.
+   * @return the declarations located at their whole source ranges.
+   */
+  protected static Stream<UnitLocation> wholeDeclarations(Stream<UnitLocation> declarations){
+    final Set<ASTNode> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    return declarations
+      .filter(each -> seen.add(each.getUnitNode()))
+      .map(each -> new ProgramUnitLocation(
+        each.getUnitNode(), Locations.locate(each.getSource(), each.getUnitNode())
+      ));
   }
 
-  protected void addLocations(Context parsedContext, List<UnitLocation> locations, Location each) {
-    final StatementsSelectionVisitor statements = new StatementsSelectionVisitor(
-      each,
-      true
+  /**
+   * Lazily streams the declarations of a given kind; see
+   * {@link DeclarationIndex#stream(Context, DeclarationIndex.Kind, String)}.
+   *
+   * @param context a parsed context.
+   * @param kind the kind of declarations.
+   * @param all true for every declaration of that kind, false for the ones
+   *    named after this unit.
+   * @return a sequential stream of declarations.
+   */
+  protected Stream<UnitLocation> declarations(Context context, DeclarationIndex.Kind kind, boolean all){
+    final Stream<UnitLocation> declarations = DeclarationIndex.stream(
+      Objects.requireNonNull(context), kind, all ? null : getIdentifier()
     );
 
-    parsedContext.accept(statements);
-    statements.checkIfSelectionCoversValidStatements();
-
-
-    if(statements.isSelectionCoveringValidStatements()){
-      // Note: once formatted, it is hard to locate a method. This mean that statements
-      // getSelectedNodes is empty, and the only non null node is the statements.lastCoveringNode,
-      // which can be A BLOCK if method is the selection. Therefore, I should get the parent of
-      // this block to get the method or class to remove.
-
-      for(ASTNode eachNode : statements.getSelectedNodes()){
-        // ignore instance creation, parameter passing,... just give me its declaration
-        addDeclaration(locations, each, eachNode);
-      }
-    }
+    return all ? wholeDeclarations(declarations) : declarations;
   }
 
-
-  protected abstract void addDeclaration(List<UnitLocation> namedLocations, Location each, ASTNode eachNode);
-
   @Override public String toString() {
     return "ProgramUnit(" + getIdentifier() + ")";
   }
@@ -1,16 +1,10 @@
 package com.vesperin.base.locators;
 
 import com.vesperin.base.Context;
-import com.vesperin.base.locations.Location;
-import com.vesperin.base.locations.Locations;
-import com.vesperin.base.visitors.TypeDeclarationVisitor;
-import org.eclipse.jdt.core.dom.ASTNode;
-import org.eclipse.jdt.core.dom.TypeDeclaration;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This element represents classes in the base Source.
@@ -38,33 +32,14 @@ public class ClassUnit extends AbstractProgramUnit {
 
     Objects.requireNonNull(context);
 
-    return (!getIdentifier().equals("all")) ? findLocationsByIdentifier(context) : findAll(context);
-  }
-
-  private static List<UnitLocation> findAll(Context context){
-
-    final TypeDeclarationVisitor visitor = new TypeDeclarationVisitor();
-    context.accept(visitor);
+    final DeclarationIndex index = context.getDeclarationIndex();
 
-    final Set<TypeDeclaration> types = visitor.getTypes();
-
-    return types.stream()
-      .map(each -> new ProgramUnitLocation(each, Locations.locate(each)))
-      .collect(Collectors.toList());
+    return (!getIdentifier().equals("all"))
+      ? index.getTypes(getIdentifier())
+      : wholeDeclarations(index.getTypes());
   }
 
-  @Override protected void addDeclaration(List<UnitLocation> locations, Location each, ASTNode eachNode) {
-    final TypeDeclaration classDeclaration = parent(
-      TypeDeclaration.class,
-      eachNode
-    );
-
-    if (classDeclaration != null) {
-      if (!contains(locations, classDeclaration) &&
-        getIdentifier().equals(classDeclaration.getName().getIdentifier())) {
-
-        locations.add(new ProgramUnitLocation(classDeclaration, each));
-      }
-    }
+  @Override public Stream<UnitLocation> streamLocations(Context context) {
+    return declarations(context, DeclarationIndex.Kind.TYPES, getIdentifier().equals("all"));
   }
 }
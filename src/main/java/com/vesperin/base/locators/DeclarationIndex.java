@@ -0,0 +1,318 @@
+package com.vesperin.base.locators;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.vesperin.base.Context;
+import com.vesperin.base.Source;
+import com.vesperin.base.locations.Locations;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.ChildListPropertyDescriptor;
+import org.eclipse.jdt.core.dom.ChildPropertyDescriptor;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.SimpleName;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.StructuralPropertyDescriptor;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
+import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable index of the declarations in a parsed context, built in a single
+ * pass over its compilation unit. Declarations are grouped by kind (types,
+ * methods, fields, local variables and parameters) and keyed by name; each one
+ * is located at its name. Within a name, declarations appear in source order.
+ *
+ * Declarations whose names do not appear in the source file (e.g., the synthetic
+ * types wrapping a code snippet) are located at their whole declaration instead.
+ *
+ * @author Huascar Sanchez
+ */
+public final class DeclarationIndex {
+  enum Kind { TYPES, METHODS, FIELDS, LOCALS, PARAMETERS }
+
+  private final Map<Kind, Declarations> declarations;
+
+  private DeclarationIndex(Map<Kind, Declarations> declarations){
+    this.declarations = declarations;
+  }
+
+  /**
+   * Builds the declaration index of a parsed context.
+   *
+   * @param context the parsed context.
+   * @return a new declaration index.
+   */
+  public static DeclarationIndex of(Context context){
+    final Source source = Objects.requireNonNull(context).getSource();
+
+    final Map<Kind, DeclarationsBuilder> builders = new EnumMap<>(Kind.class);
+    for(Kind each : Kind.values()){
+      builders.put(each, new DeclarationsBuilder());
+    }
+
+    context.accept(new ASTVisitor() {
+      @Override public boolean preVisit2(ASTNode node) {
+        declare(source, node, (kind, name, location) -> builders.get(kind).put(name, location));
+        return true;
+      }
+    });
+
+    final Map<Kind, Declarations> declarations = new EnumMap<>(Kind.class);
+    for(Kind each : Kind.values()){
+      declarations.put(each, builders.get(each).build());
+    }
+
+    return new DeclarationIndex(declarations);
+  }
+
+  /**
+   * Streams the declarations of a given kind in a parsed context. The context's
+   * index is used if it is already built. Otherwise, the compilation unit is
+   * walked lazily; the walk stops as soon as the stream's consumer stops
+   * pulling (e.g., findFirst, anyMatch).
+   *
+   * @param context the parsed context.
+   * @param kind the kind of declarations.
+   * @param name the declarations' name; null for all of them.
+   * @return a sequential stream of declarations, in source order.
+   */
+  static Stream<UnitLocation> stream(Context context, Kind kind, String name){
+    if(context.hasDeclarationIndex()){
+      final Declarations found = context.getDeclarationIndex().declarations.get(kind);
+      return (name == null ? found.all : found.byName.get(name)).stream();
+    }
+
+    final Iterator<UnitLocation> iterator = new LazyScan(context, kind, name);
+    return StreamSupport.stream(
+      Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+      false
+    );
+  }
+
+  /**
+   * @param name the type's name.
+   * @return the type declarations with that name.
+   */
+  public List<UnitLocation> getTypes(String name){
+    return declarations.get(Kind.TYPES).byName.get(name);
+  }
+
+  /**
+   * @return all the type declarations, in source order.
+   */
+  public List<UnitLocation> getTypes(){
+    return declarations.get(Kind.TYPES).all;
+  }
+
+  /**
+   * @param name the method's name.
+   * @return the method (and constructor) declarations with that name.
+   */
+  public List<UnitLocation> getMethods(String name){
+    return declarations.get(Kind.METHODS).byName.get(name);
+  }
+
+  /**
+   * @return all the method (and constructor) declarations, in source order.
+   */
+  public List<UnitLocation> getMethods(){
+    return declarations.get(Kind.METHODS).all;
+  }
+
+  /**
+   * @param name the field's name.
+   * @return the field declarations declaring a field with that name.
+   */
+  public List<UnitLocation> getFields(String name){
+    return declarations.get(Kind.FIELDS).byName.get(name);
+  }
+
+  /**
+   * @return all the field declarations, in source order; one entry per declared field.
+   */
+  public List<UnitLocation> getFields(){
+    return declarations.get(Kind.FIELDS).all;
+  }
+
+  /**
+   * @param name the local variable's name.
+   * @return the variable declaration statements declaring a variable with that name.
+   */
+  public List<UnitLocation> getLocals(String name){
+    return declarations.get(Kind.LOCALS).byName.get(name);
+  }
+
+  /**
+   * @param name the parameter's name.
+   * @return the single variable declarations (method, catch clause, or
+   *    enhanced for parameters) with that name.
+   */
+  public List<UnitLocation> getParameters(String name){
+    return declarations.get(Kind.PARAMETERS).byName.get(name);
+  }
+
+  @Override public String toString() {
+    return "DeclarationIndex(types=" + getTypes().size()
+      + ", methods=" + getMethods().size()
+      + ", fields=" + getFields().size()
+      + ", locals=" + declarations.get(Kind.LOCALS).all.size()
+      + ", parameters=" + declarations.get(Kind.PARAMETERS).all.size()
+      + ")";
+  }
+
+  /**
+   * Reports the declarations made by a single AST node: none, one, or one per
+   * declared variable.
+   */
+  private static void declare(Source source, ASTNode node, Sink sink){
+    switch (node.getNodeType()){
+      case ASTNode.TYPE_DECLARATION:
+        declare(source, Kind.TYPES, ((TypeDeclaration) node).getName(), node, sink);
+        break;
+      case ASTNode.METHOD_DECLARATION:
+        declare(source, Kind.METHODS, ((MethodDeclaration) node).getName(), node, sink);
+        break;
+      case ASTNode.FIELD_DECLARATION:
+        for(Object each : ((FieldDeclaration) node).fragments()){
+          declare(source, Kind.FIELDS, ((VariableDeclarationFragment) each).getName(), node, sink);
+        }
+        break;
+      case ASTNode.VARIABLE_DECLARATION_STATEMENT:
+        for(Object each : ((VariableDeclarationStatement) node).fragments()){
+          declare(source, Kind.LOCALS, ((VariableDeclarationFragment) each).getName(), node, sink);
+        }
+        break;
+      case ASTNode.SINGLE_VARIABLE_DECLARATION:
+        declare(source, Kind.PARAMETERS, ((SingleVariableDeclaration) node).getName(), node, sink);
+        break;
+    }
+  }
+
+  private static void declare(Source source, Kind kind, SimpleName name, ASTNode declaration, Sink sink){
+    final String content    = source.getContent();
+    final String identifier = name.getIdentifier();
+    final int    start      = name.getStartPosition();
+
+    if(start >= 0 && content.startsWith(identifier, start)){
+      sink.accept(
+        kind,
+        identifier,
+        new ProgramUnitLocation(
+          declaration,
+          Locations.createLocation(source, content, start, start + identifier.length())
+        )
+      );
+    } else if(declaration.getStartPosition() >= 0){
+      // synthetic names (e.g., MISSING) are located at their whole declaration
+      sink.accept(kind, identifier, new ProgramUnitLocation(declaration, Locations.locate(source, declaration)));
+    }
+  }
+
+  private interface Sink {
+    void accept(Kind kind, String name, UnitLocation location);
+  }
+
+  private static class Declarations {
+    final ImmutableListMultimap<String, UnitLocation> byName;
+    final ImmutableList<UnitLocation>                 all;
+
+    Declarations(ImmutableListMultimap<String, UnitLocation> byName, ImmutableList<UnitLocation> all){
+      this.byName = byName;
+      this.all    = all;
+    }
+  }
+
+  private static class DeclarationsBuilder {
+    final ImmutableListMultimap.Builder<String, UnitLocation> byName  = ImmutableListMultimap.builder();
+    final ImmutableList.Builder<UnitLocation>                 all     = ImmutableList.builder();
+
+    void put(String name, UnitLocation location){
+      byName.put(name, location);
+      all.add(location);
+    }
+
+    Declarations build(){
+      return new Declarations(byName.build(), all.build());
+    }
+  }
+
+  /**
+   * Walks a compilation unit in preorder, one node per step, yielding the
+   * declarations of a given kind (and name) as it finds them.
+   */
+  private static class LazyScan implements Iterator<UnitLocation> {
+    final Source  source;
+    final Kind    kind;
+    final String  name;
+
+    final Deque<ASTNode>      pending;
+    final Deque<UnitLocation> found;
+
+    LazyScan(Context context, Kind kind, String name){
+      this.source   = context.getSource();
+      this.kind     = kind;
+      this.name     = name;
+      this.pending  = new ArrayDeque<>();
+      this.found    = new ArrayDeque<>();
+
+      this.pending.push(Objects.requireNonNull(context.getCompilationUnit()));
+    }
+
+    @Override public boolean hasNext() {
+      while(found.isEmpty() && !pending.isEmpty()){
+        final ASTNode node = pending.pop();
+
+        declare(source, node, (k, n, location) -> {
+          if(k == kind && (name == null || name.equals(n))) found.add(location);
+        });
+
+        pushChildren(node);
+      }
+
+      return !found.isEmpty();
+    }
+
+    @Override public UnitLocation next() {
+      if(!hasNext()) throw new NoSuchElementException();
+      return found.poll();
+    }
+
+    private void pushChildren(ASTNode node){
+      final List<ASTNode> children = new ArrayList<>();
+
+      for(Object each : node.structuralPropertiesForType()){
+        final StructuralPropertyDescriptor property = (StructuralPropertyDescriptor) each;
+
+        if(property instanceof ChildPropertyDescriptor){
+          final Object child = node.getStructuralProperty(property);
+          if(child != null) children.add((ASTNode) child);
+        } else if(property instanceof ChildListPropertyDescriptor){
+          for(Object child : (List<?>) node.getStructuralProperty(property)){
+            children.add((ASTNode) child);
+          }
+        }
+      }
+
+      // last child first, so that the first child is popped next
+      for(int idx = children.size() - 1; idx >= 0; idx--){
+        pending.push(children.get(idx));
+      }
+    }
+  }
+}
@@ -1,14 +1,10 @@
 package com.vesperin.base.locators;
 
 import com.vesperin.base.Context;
-import com.vesperin.base.locations.Location;
-import com.vesperin.base.visitors.FieldDeclarationVisitor;
-import org.eclipse.jdt.core.dom.ASTNode;
-import org.eclipse.jdt.core.dom.FieldDeclaration;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This represents a field of a class.
@@ -35,25 +31,14 @@ public class FieldUnit extends AbstractProgramUnit {
   @Override public List<UnitLocation> getLocations(Context context) {
     Objects.requireNonNull(context);
 
-    return (!getIdentifier().equals("all")) ? findLocationsByIdentifier(context) : findAll(context);
-  }
-
-  private static List<UnitLocation> findAll(Context context){
-    final FieldDeclarationVisitor visitor = new FieldDeclarationVisitor();
-    context.accept(visitor);
+    final DeclarationIndex index = context.getDeclarationIndex();
 
-    return visitor.getData().keySet().stream()
-      .map(each -> new ProgramUnitLocation(visitor.getData().get(each), each))
-      .collect(Collectors.toList());
+    return (!getIdentifier().equals("all"))
+      ? index.getFields(getIdentifier())
+      : wholeDeclarations(index.getFields());
   }
 
-  @Override protected void addDeclaration(List<UnitLocation> locations, Location each, ASTNode eachNode) {
-    final FieldDeclaration field = parent(FieldDeclaration.class, eachNode);
-
-    if (field != null) {
-      if (!contains(locations, field)) {
-        locations.add(new ProgramUnitLocation(field, each));
-      }
-    }
+  @Override public Stream<UnitLocation> streamLocations(Context context) {
+    return declarations(context, DeclarationIndex.Kind.FIELDS, getIdentifier().equals("all"));
   }
 }
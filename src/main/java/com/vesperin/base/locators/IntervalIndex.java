@@ -0,0 +1,256 @@
+package com.vesperin.base.locators;
+
+import com.google.common.collect.ImmutableList;
+import com.vesperin.base.Context;
+import com.vesperin.base.Source;
+import com.vesperin.base.locations.Locations;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
+import org.eclipse.jdt.core.dom.Statement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable interval index over the source ranges of a parsed context's
+ * declarations (types, methods, fields, initializers, parameters) and
+ * statements. Ranges are half-open: [start, start + length).
+ *
+ * Ranges are kept sorted by start offset (outermost first on ties), and laid out
+ * as an implicit balanced tree where each subtree knows its largest end offset;
+ * a query only descends into subtrees that may hold a match. Every query returns
+ * its matches in that same order; e.g., enclosing declarations go from the
+ * outermost to the innermost one.
+ *
+ * @author Huascar Sanchez
+ */
+public final class IntervalIndex {
+  private final UnitLocation[]  locations;
+  private final int[]           starts;
+  private final int[]           ends;
+  private final int[]           maxEnds;
+
+  private IntervalIndex(UnitLocation[] locations, int[] starts, int[] ends){
+    this.locations  = locations;
+    this.starts     = starts;
+    this.ends       = ends;
+    this.maxEnds    = new int[locations.length];
+
+    buildMaxEnds(0, locations.length);
+  }
+
+  /**
+   * Builds the interval index of a parsed context.
+   *
+   * @param context the parsed context.
+   * @return a new interval index.
+   */
+  public static IntervalIndex of(Context context){
+    final Source source = Objects.requireNonNull(context).getSource();
+
+    final List<ASTNode> nodes = new ArrayList<>();
+    context.accept(new ASTVisitor() {
+      @Override public boolean preVisit2(ASTNode node) {
+        if(node.getStartPosition() >= 0 && isIndexed(node)){
+          nodes.add(node);
+        }
+
+        return true;
+      }
+    });
+
+    // preorder already sorts by start offset, outermost first; but recovered
+    // trees may not nest perfectly, so sort anyway (stable)
+    nodes.sort(Comparator.comparingInt(ASTNode::getStartPosition));
+
+    final int size = nodes.size();
+
+    final UnitLocation[]  locations = new UnitLocation[size];
+    final int[]           starts    = new int[size];
+    final int[]           ends      = new int[size];
+
+    for(int idx = 0; idx < size; idx++){
+      final ASTNode node = nodes.get(idx);
+
+      locations[idx]  = new ProgramUnitLocation(node, Locations.locate(source, node));
+      starts[idx]     = locations[idx].getStart().getOffset();
+      ends[idx]       = locations[idx].getEnd().getOffset();
+    }
+
+    return new IntervalIndex(locations, starts, ends);
+  }
+
+  private static boolean isIndexed(ASTNode node){
+    return node instanceof BodyDeclaration
+      || node instanceof Statement
+      || node instanceof SingleVariableDeclaration;
+  }
+
+  private int buildMaxEnds(int from, int to){
+    if(from >= to) return Integer.MIN_VALUE;
+
+    final int mid = (from + to) >>> 1;
+
+    maxEnds[mid] = Math.max(
+      ends[mid],
+      Math.max(buildMaxEnds(from, mid), buildMaxEnds(mid + 1, to))
+    );
+
+    return maxEnds[mid];
+  }
+
+  /**
+   * Stabbing query: finds the ranges containing an offset; i.e., start &lt;=
+   * offset &lt; end (see {@link Locations#insideScope}).
+   *
+   * @param offset the offset of interest.
+   * @return the enclosing locations, outermost first.
+   */
+  public List<UnitLocation> getEnclosing(int offset){
+    return getEnclosing(offset, offset + 1);
+  }
+
+  /**
+   * Containment query: finds the ranges containing a whole range.
+   *
+   * @param start the start offset of the range.
+   * @param end the (exclusive) end offset of the range.
+   * @return the enclosing locations, outermost first.
+   */
+  public List<UnitLocation> getEnclosing(int start, int end){
+    checkRange(start, end);
+
+    final ImmutableList.Builder<UnitLocation> found = ImmutableList.builder();
+    // candidates start at or before start and end at or after end
+    collect(0, locations.length, start, end, Query.ENCLOSING, found);
+    return found.build();
+  }
+
+  /**
+   * Finds the innermost range containing a whole range.
+   *
+   * @param start the start offset of the range.
+   * @param end the (exclusive) end offset of the range.
+   * @return the innermost enclosing location; null if there is none.
+   */
+  public UnitLocation getInnermost(int start, int end){
+    final List<UnitLocation> enclosing = getEnclosing(start, end);
+    return enclosing.isEmpty() ? null : enclosing.get(enclosing.size() - 1);
+  }
+
+  /**
+   * Finds the ranges lying within a given range.
+   *
+   * @param start the start offset of the range.
+   * @param end the (exclusive) end offset of the range.
+   * @return the enclosed locations, in start order.
+   */
+  public List<UnitLocation> getEnclosed(int start, int end){
+    checkRange(start, end);
+
+    final ImmutableList.Builder<UnitLocation> found = ImmutableList.builder();
+
+    // candidates start within the range; i.e., a contiguous run of starts
+    for(int idx = firstStartingAt(start); idx < starts.length && starts[idx] <= end; idx++){
+      if(ends[idx] <= end){
+        found.add(locations[idx]);
+      }
+    }
+
+    return found.build();
+  }
+
+  /**
+   * Overlap query: finds the ranges sharing at least one offset with a given
+   * range. An empty range overlaps the ranges containing its start.
+   *
+   * @param start the start offset of the range.
+   * @param end the (exclusive) end offset of the range.
+   * @return the overlapping locations, in start order.
+   */
+  public List<UnitLocation> getOverlapping(int start, int end){
+    checkRange(start, end);
+
+    final ImmutableList.Builder<UnitLocation> found = ImmutableList.builder();
+    collect(0, locations.length, start, Math.max(end, start + 1), Query.OVERLAPPING, found);
+    return found.build();
+  }
+
+  /**
+   * @return the number of indexed ranges.
+   */
+  public int size(){
+    return locations.length;
+  }
+
+  private static void checkRange(int start, int end){
+    if(start < 0 || end < start){
+      throw new IllegalArgumentException("Error: Invalid range");
+    }
+  }
+
+  private int firstStartingAt(int offset){
+    int idx = Arrays.binarySearch(starts, offset);
+    if(idx < 0) return -idx - 1;
+
+    // equal starts may repeat; back up to the first one
+    while(idx > 0 && starts[idx - 1] == offset) idx--;
+    return idx;
+  }
+
+  private void collect(int from, int to, int start, int end, Query query,
+                       ImmutableList.Builder<UnitLocation> found){
+
+    if(from >= to) return;
+
+    final int mid = (from + to) >>> 1;
+
+    // nothing in this subtree reaches the range
+    if(maxEnds[mid] < query.minimumEnd(start, end)) return;
+
+    collect(from, mid, start, end, query, found);
+
+    // ranges to the right start at or after starts[mid]
+    if(starts[mid] > query.maximumStart(start, end)) return;
+
+    if(query.matches(starts[mid], ends[mid], start, end)){
+      found.add(locations[mid]);
+    }
+
+    collect(mid + 1, to, start, end, query, found);
+  }
+
+  @Override public String toString() {
+    return "IntervalIndex(size=" + size() + ")";
+  }
+
+  private enum Query {
+    ENCLOSING {
+      @Override int minimumEnd(int start, int end)   { return end; }
+      @Override int maximumStart(int start, int end) { return start; }
+      @Override boolean matches(int s, int e, int start, int end) {
+        return s <= start && end <= e;
+      }
+    },
+    OVERLAPPING {
+      @Override int minimumEnd(int start, int end)   { return start + 1; }
+      @Override int maximumStart(int start, int end) { return end - 1; }
+      @Override boolean matches(int s, int e, int start, int end) {
+        return s < end && start < e;
+      }
+    };
+
+    /** The smallest end offset a matching range may have. */
+    abstract int minimumEnd(int start, int end);
+
+    /** The largest start offset a matching range may have. */
+    abstract int maximumStart(int start, int end);
+
+    abstract boolean matches(int s, int e, int start, int end);
+  }
+}
@@ -1,14 +1,10 @@
 package com.vesperin.base.locators;
 
 import com.vesperin.base.Context;
-import com.vesperin.base.locations.Location;
-import com.vesperin.base.visitors.MethodDeclarationVisitor;
-import org.eclipse.jdt.core.dom.ASTNode;
-import org.eclipse.jdt.core.dom.MethodDeclaration;
 
 import java.util.List;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * This represents a method of a class.
@@ -35,27 +31,14 @@ public class MethodUnit extends AbstractProgramUnit {
   @Override public List<UnitLocation> getLocations(Context context) {
     Objects.requireNonNull(context);
 
-    return (!getIdentifier().equals("all")) ? findLocationsByIdentifier(context) : findAll(context);
-  }
-
-  private static List<UnitLocation> findAll(Context context){
-    final MethodDeclarationVisitor visitor = new MethodDeclarationVisitor();
-    context.accept(visitor);
+    final DeclarationIndex index = context.getDeclarationIndex();
 
-    return visitor.getData().keySet().stream()
-      .map(each -> new ProgramUnitLocation(visitor.getData().get(each), each))
-      .collect(Collectors.toList());
+    return (!getIdentifier().equals("all"))
+      ? index.getMethods(getIdentifier())
+      : wholeDeclarations(index.getMethods());
   }
 
-  @Override protected void addDeclaration(List<UnitLocation> locations, Location each, ASTNode eachNode) {
-    final MethodDeclaration methodDeclaration = parent(MethodDeclaration.class, eachNode);
-
-    if (methodDeclaration != null) {
-      if (!contains(locations, methodDeclaration) &&
-        getIdentifier().equals(methodDeclaration.getName().getIdentifier())) {
-
-        locations.add(new ProgramUnitLocation(methodDeclaration, each));
-      }
-    }
+  @Override public Stream<UnitLocation> streamLocations(Context context) {
+    return declarations(context, DeclarationIndex.Kind.METHODS, getIdentifier().equals("all"));
   }
 }
@@ -1,12 +1,10 @@
 package com.vesperin.base.locators;
 
 import com.vesperin.base.Context;
-import com.vesperin.base.locations.Location;
-import org.eclipse.jdt.core.dom.ASTNode;
-import org.eclipse.jdt.core.dom.SingleVariableDeclaration;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * This represents a parameter of a class's method.
@@ -26,16 +24,10 @@ public class ParameterUnit extends AbstractProgramUnit {
   @Override public List<UnitLocation> getLocations(Context context) {
     Objects.requireNonNull(context);
 
-    return findLocationsByIdentifier(context);
+    return context.getDeclarationIndex().getParameters(getIdentifier());
   }
 
-  @Override protected void addDeclaration(List<UnitLocation> namedLocations, Location each, ASTNode eachNode) {
-    final SingleVariableDeclaration parameter = parent(SingleVariableDeclaration.class, eachNode);
-
-    if (parameter != null) {
-      if (!contains(namedLocations, parameter)) {
-        namedLocations.add(new ProgramUnitLocation(parameter, each));
-      }
-    }
+  @Override public Stream<UnitLocation> streamLocations(Context context) {
+    return declarations(context, DeclarationIndex.Kind.PARAMETERS, false);
   }
 }
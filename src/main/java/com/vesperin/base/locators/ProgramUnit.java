@@ -3,6 +3,7 @@ package com.vesperin.base.locators;
 import com.vesperin.base.Context;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * @author Huascar Sanchez
@@ -21,4 +22,16 @@ public interface ProgramUnit {
    * @return new list of locations.
    */
   List<UnitLocation> getLocations(Context context);
+
+  /**
+   * Returns the locations where <strong>this</strong> program unit occurs, as
+   * a lazy stream; units that can find their locations incrementally stop
+   * searching once the stream's consumer stops pulling.
+   *
+   * @param context a parsed context.
+   * @return a sequential stream of locations.
+   */
+  default Stream<UnitLocation> streamLocations(Context context){
+    return getLocations(context).stream();
+  }
 }
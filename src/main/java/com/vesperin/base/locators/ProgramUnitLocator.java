@@ -2,8 +2,11 @@ package com.vesperin.base.locators;
 
 import com.vesperin.base.Context;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * @author Huascar Sanchez
@@ -29,6 +32,31 @@ public class ProgramUnitLocator implements UnitLocator {
     return unit.getLocations(context);
   }
 
+  @Override public Stream<UnitLocation> stream(ProgramUnit unit) {
+    track(unit.getIdentifier(), unit);
+
+    return unit.streamLocations(context);
+  }
+
+  /**
+   * Locates many program units against a single {@link DeclarationIndex}; the
+   * context's compilation unit is traversed once, no matter how many named
+   * units are requested. Selected units are resolved by their own (pruned)
+   * selection descent.
+   *
+   * @param units The program units to be located.
+   * @return the locations of each unit's declaration, keyed by unit in
+   *    iteration order.
+   */
+  @Override public Map<ProgramUnit, List<UnitLocation>> locateAll(Collection<ProgramUnit> units) {
+    // builds (or reuses) the index before the units start asking for it
+    if(!Objects.requireNonNull(units).isEmpty()){
+      context.getDeclarationIndex();
+    }
+
+    return UnitLocator.super.locateAll(units);
+  }
+
 
   Context getContext() {
     return context;
@@ -3,6 +3,7 @@ package com.vesperin.base.locators;
 import com.google.common.collect.Lists;
 import com.vesperin.base.Context;
 import com.vesperin.base.locations.Location;
+import com.vesperin.base.visitors.StatementsSelectionVisitor;
 import org.eclipse.jdt.core.dom.ASTNode;
 
 import java.util.List;
@@ -29,18 +30,49 @@ public class SelectedUnit extends AbstractProgramUnit {
 
     final List<UnitLocation> locations = Lists.newArrayList();
 
-    addLocations(context, locations, selection);
+    final StatementsSelectionVisitor statements = new StatementsSelectionVisitor(
+      selection,
+      true
+    );
+
+    final ASTNode root = enclosingNode(context);
+    if(root == null){
+      context.accept(statements);
+    } else {
+      root.accept(statements);
+    }
+
+    statements.checkIfSelectionCoversValidStatements();
+
+    if(statements.isSelectionCoveringValidStatements()){
+      for(ASTNode eachNode : statements.getSelectedNodes()){
+        locations.add(new ProgramUnitLocation(eachNode, selection));
+      }
+    }
 
     return locations;
   }
 
+  /**
+   * Finds the innermost declaration or statement strictly enclosing the
+   * selection, even with the selection visitor's one-offset slack at the end;
+   * i.e., a node that the selection visitor would descend into as a covering
+   * node, and whose ancestors would be descended into as well. Selecting from
+   * that node is therefore the same as selecting from the compilation unit.
+   */
+  private ASTNode enclosingNode(Context context){
+    final int start = selection.getStart().getOffset();
+    final int end   = selection.getEnd().getOffset();
+
+    if(start < 1 || end < start) return null;
+
+    final UnitLocation enclosing = context.getIntervalIndex().getInnermost(start - 1, end + 2);
+    return enclosing == null ? null : enclosing.getUnitNode();
+  }
+
   private void ensureIsWildCard() {
     if (!WILD_CARD.equals(getIdentifier())) {
       throw new RuntimeException("Not a wildcard unit");
     }
   }
-
-  @Override protected void addDeclaration(List<UnitLocation> locations, Location each, ASTNode eachNode) {
-    locations.add(new ProgramUnitLocation(eachNode, each));
-  }
 }
@@ -1,6 +1,11 @@
 package com.vesperin.base.locators;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * @author Huascar Sanchez
@@ -14,4 +19,31 @@ public interface UnitLocator {
    * @return the list of locations containing the declaration of this unit.
    */
   List<UnitLocation> locate(ProgramUnit unit);
+
+  /**
+   * Lazily locates program unit declarations; e.g., {@code stream(unit).findFirst()}
+   * stops searching after the first declaration is found.
+   *
+   * @param unit The program unit to be located, e.g., class, method, ....
+   * @return a sequential stream of locations containing the declaration of this unit.
+   */
+  default Stream<UnitLocation> stream(ProgramUnit unit){
+    return locate(unit).stream();
+  }
+
+  /**
+   * Locates the declarations of many program units at once.
+   *
+   * @param units The program units to be located.
+   * @return the locations of each unit's declaration, keyed by unit in
+   *    iteration order.
+   */
+  default Map<ProgramUnit, List<UnitLocation>> locateAll(Collection<ProgramUnit> units){
+    final Map<ProgramUnit, List<UnitLocation>> locations = new LinkedHashMap<>();
+    for(ProgramUnit each : Objects.requireNonNull(units)){
+      locations.put(each, locate(each));
+    }
+
+    return locations;
+  }
 }
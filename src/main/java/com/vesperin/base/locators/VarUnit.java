@@ -1,12 +1,10 @@
 package com.vesperin.base.locators;
 
 import com.vesperin.base.Context;
-import com.vesperin.base.locations.Location;
-import org.eclipse.jdt.core.dom.ASTNode;
-import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 /**
  * This represents a local variable of a class.
@@ -26,16 +24,10 @@ public class VarUnit extends AbstractProgramUnit {
   @Override public List<UnitLocation> getLocations(Context context) {
     Objects.requireNonNull(context);
 
-    return findLocationsByIdentifier(context);
+    return context.getDeclarationIndex().getLocals(getIdentifier());
   }
 
-  @Override protected void addDeclaration(List<UnitLocation> namedLocations, Location each, ASTNode eachNode) {
-    final VariableDeclarationStatement localVar = parent(VariableDeclarationStatement.class, eachNode);
-
-    if (localVar != null) {
-      if (!contains(namedLocations, localVar)) {
-        namedLocations.add(new ProgramUnitLocation(localVar, each));
-      }
-    }
+  @Override public Stream<UnitLocation> streamLocations(Context context) {
+    return declarations(context, DeclarationIndex.Kind.LOCALS, false);
   }
 }
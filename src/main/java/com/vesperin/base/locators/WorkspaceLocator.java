@@ -0,0 +1,174 @@
+package com.vesperin.base.locators;
+
+import com.google.common.collect.ImmutableList;
+import com.vesperin.base.Context;
+import com.vesperin.base.Source;
+
+import javax.lang.model.SourceVersion;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Locates program units across many parsed contexts (e.g., every file in a
+ * project). Contexts are searched in parallel on a fork-join pool; a context
+ * whose source file never mentions a named unit's identifier is skipped without
+ * touching its AST.
+ *
+ * Results are deterministic: they are ordered by source file name (ties keep
+ * the order in which contexts were given), then by start offset.
+ *
+ * A context must not be modified, or located from another thread, while a
+ * search over it is running.
+ *
+ * @author Huascar Sanchez
+ */
+public class WorkspaceLocator implements UnitLocator {
+  private static final int    THRESHOLD     = 4;
+  // the synthetic type wrapping a code snippet; its name is not in the source
+  private static final String SYNTHETIC     = "MISSING";
+
+  private final List<Context> contexts;
+  private final ForkJoinPool  pool;
+
+  /**
+   * Constructs a new {@code WorkspaceLocator} backed by the common fork-join pool.
+   *
+   * @param contexts the parsed contexts to search.
+   */
+  public WorkspaceLocator(Collection<Context> contexts){
+    this(contexts, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a new {@code WorkspaceLocator}.
+   *
+   * @param contexts the parsed contexts to search; duplicates are ignored.
+   * @param pool the fork-join pool running the search.
+   */
+  public WorkspaceLocator(Collection<Context> contexts, ForkJoinPool pool){
+    this.contexts = sortByFile(Objects.requireNonNull(contexts));
+    this.pool     = Objects.requireNonNull(pool);
+  }
+
+  private static List<Context> sortByFile(Collection<Context> contexts){
+    final Set<Context>  seen    = Collections.newSetFromMap(new IdentityHashMap<>());
+    final List<Context> unique  = new ArrayList<>();
+
+    for(Context each : contexts){
+      if(seen.add(Objects.requireNonNull(each))){
+        unique.add(each);
+      }
+    }
+
+    // a stable sort; same-named files keep their relative order
+    unique.sort(Comparator.comparing(each -> each.getSource().getName()));
+
+    return ImmutableList.copyOf(unique);
+  }
+
+  /**
+   * Locates a program unit in every context of this workspace.
+   *
+   * @param unit The program unit to be located, e.g., class, method, ....
+   * @return the locations of this unit's declarations, ordered by file, then
+   *    by offset.
+   */
+  @Override public List<UnitLocation> locate(ProgramUnit unit) {
+    Objects.requireNonNull(unit);
+
+    if(contexts.isEmpty()) return ImmutableList.of();
+
+    return ImmutableList.copyOf(pool.invoke(new Search(contexts, 0, contexts.size(), unit)));
+  }
+
+  /**
+   * @return the contexts of this workspace, in file order.
+   */
+  public List<Context> getContexts(){
+    return contexts;
+  }
+
+  /**
+   * Tells whether a context may declare a given program unit. Named units can
+   * only be declared in files that mention their identifiers; anything else
+   * (e.g., "all" units, or selections, whose identifier is a wild card) may be
+   * declared anywhere.
+   */
+  static boolean mayDeclare(Context context, ProgramUnit unit){
+    if(!(unit instanceof AbstractProgramUnit) || unit instanceof SelectedUnit) return true;
+
+    final String identifier = unit.getIdentifier();
+    if("all".equals(identifier) || SYNTHETIC.equals(identifier)) return true;
+
+    // only identifier tokens are indexed
+    if(!SourceVersion.isIdentifier(identifier) || SourceVersion.isKeyword(identifier)) return true;
+
+    final Source source = context.getSource();
+    return source.getIdentifierIndex().contains(identifier);
+  }
+
+  private static List<UnitLocation> locate(Context context, ProgramUnit unit){
+    if(!mayDeclare(context, unit)) return ImmutableList.of();
+
+    final List<UnitLocation> found = new ArrayList<>(new ProgramUnitLocator(context).locate(unit));
+    found.sort(Comparator.comparingInt(each -> each.getStart().getOffset()));
+
+    return found;
+  }
+
+  @Override public String toString() {
+    return "WorkspaceLocator(contexts=" + contexts.size() + ")";
+  }
+
+  /**
+   * Searches a range of contexts; halves are searched in parallel and their
+   * results concatenated in order.
+   */
+  private static class Search extends RecursiveTask<List<UnitLocation>> {
+    private static final long serialVersionUID = 1L;
+
+    final List<Context> contexts;
+    final int           from;
+    final int           to;
+    final ProgramUnit   unit;
+
+    Search(List<Context> contexts, int from, int to, ProgramUnit unit){
+      this.contexts = contexts;
+      this.from     = from;
+      this.to       = to;
+      this.unit     = unit;
+    }
+
+    @Override protected List<UnitLocation> compute() {
+      if(to - from <= THRESHOLD){
+        final List<UnitLocation> found = new ArrayList<>();
+        for(int idx = from; idx < to; idx++){
+          found.addAll(locate(contexts.get(idx), unit));
+        }
+
+        return found;
+      }
+
+      final int mid = (from + to) >>> 1;
+
+      final Search left  = new Search(contexts, from, mid, unit);
+      final Search right = new Search(contexts, mid, to, unit);
+
+      left.fork();
+
+      final List<UnitLocation> rightFound = right.compute();
+      final List<UnitLocation> found      = left.join();
+
+      found.addAll(rightFound);
+      return found;
+    }
+  }
+}
@@ -4,11 +4,13 @@ import com.vesperin.base.Context;
 import com.vesperin.base.ParsedUnit;
 import com.vesperin.base.utils.Jdt;
 import com.vesperin.base.locations.Locations;
-import com.vesperin.base.EclipseJavaParser;
 import com.vesperin.base.JavaParser;
+import com.vesperin.base.ParserEngine;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
 
+import java.util.Objects;
+
 /**
  * @author Huascar Sanchez
  */
@@ -24,8 +26,18 @@ public abstract class AbstractContextMatcher implements ContextMatcher {
    * @param mode the parsing mode.
    */
   protected AbstractContextMatcher(int mode){
+    this(mode, ParserEngine.getDefault());
+  }
+
+  /**
+   * Constructs a matcher that delegates its parsing to a given parser.
+   *
+   * @param mode the parsing mode.
+   * @param parser the parser doing the actual parsing.
+   */
+  protected AbstractContextMatcher(int mode, JavaParser parser){
     this.mode     = mode;
-    this.parser   = new EclipseJavaParser();
+    this.parser   = Objects.requireNonNull(parser);
   }
 
   protected static ParsedUnit bindProgramUnitToContext(Context context, ParsedUnit unit){
@@ -2,12 +2,16 @@ package com.vesperin.base.matchers;
 
 import com.google.common.collect.ImmutableList;
 import com.vesperin.base.Context;
+import com.vesperin.base.JavaParser;
+import com.vesperin.base.ParseCancelledException;
 import com.vesperin.base.ParsedUnit;
+import com.vesperin.base.ParserEngine;
 import com.vesperin.base.utils.Jdt;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.ASTParser;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
@@ -15,23 +19,107 @@ import java.util.Objects;
  * @author Huascar Sanchez
  */
 public class MatchMaker {
+  private static final SnippetClassifier CLASSIFIER = new SnippetClassifier();
+
   private MatchMaker(){
     throw new Error("" +
         "Utility class"
     );
   }
 
+  /**
+   * @return the unit matchers, in order, backed by the default {@link ParserEngine}.
+   */
   public static List<ContextMatcher> generateUnitMatchers(){
+    return generateUnitMatchers(ParserEngine.getDefault());
+  }
+
+  /**
+   * Generates the unit matchers, in order, backed by a given parser. Matchers
+   * hold no parsing state of their own, so this is cheap.
+   *
+   * @param parser the parser used by all the matchers.
+   * @return the list of unit matchers.
+   */
+  public static List<ContextMatcher> generateUnitMatchers(JavaParser parser){
     return ImmutableList.of(
-        new ValidCompilationUnitMatching(),
-        new MissingClassDeclaration(),
-        new MissingClassAndMethodBodyDeclarations()
+        new ValidCompilationUnitMatching(parser),
+        new MissingClassDeclaration(parser),
+        new MissingClassAndMethodBodyDeclarations(parser)
+    );
+  }
+
+  /**
+   * Generates the unit matchers for a given context. The matcher predicted by
+   * the {@link SnippetClassifier} goes first; the remaining ones follow in their
+   * usual order, and are only used if the prediction fails.
+   *
+   * @param context the context to be matched.
+   * @param parser the parser used by all the matchers.
+   * @return the list of unit matchers.
+   */
+  public static List<ContextMatcher> generateUnitMatchers(Context context, JavaParser parser){
+    final int predictedMode = CLASSIFIER.classify(
+      Objects.requireNonNull(context).getSourceContent()
     );
+
+    if(predictedMode == SnippetClassifier.UNKNOWN) return generateUnitMatchers(parser);
+
+    final List<ContextMatcher> matchers = new ArrayList<>();
+    for(ContextMatcher each : generateUnitMatchers(parser)){
+      final AbstractContextMatcher matcher = (AbstractContextMatcher) each;
+      if(matcher.getParsingMode() == predictedMode){
+        matchers.add(0, new PredictedUnitMatching(matcher, CLASSIFIER));
+      } else {
+        matchers.add(matcher);
+      }
+    }
+
+    return matchers;
+  }
+
+  /**
+   * @return the shared snippet classifier; useful for reading its hit/miss counters.
+   */
+  public static SnippetClassifier getSnippetClassifier(){
+    return CLASSIFIER;
+  }
+
+  static class PredictedUnitMatching implements ContextMatcher {
+    private final AbstractContextMatcher  matcher;
+    private final SnippetClassifier       classifier;
+
+    PredictedUnitMatching(AbstractContextMatcher matcher, SnippetClassifier classifier){
+      this.matcher    = matcher;
+      this.classifier = classifier;
+    }
+
+    @Override public ParsedUnit matches(Context context) {
+      boolean hit = false;
+      boolean cancelled = false;
+      try {
+        final ParsedUnit unit = matcher.matches(context);
+        hit = !unit.isEmptyUnit();
+        return unit;
+      } catch (ParseCancelledException e){
+        // says nothing about the prediction
+        cancelled = true;
+        throw e;
+      } finally {
+        if(!cancelled){
+          if(hit) classifier.recordHit(); else classifier.recordMiss();
+        }
+      }
+    }
+
+    @Override public String toString() {
+      return "Predicted" + matcher;
+    }
   }
 
   static class ValidCompilationUnitMatching extends AbstractContextMatcher {
-    ValidCompilationUnitMatching() {
-      super(ASTParser.K_COMPILATION_UNIT);
+    ValidCompilationUnitMatching(JavaParser parser) {
+      super(ASTParser.K_COMPILATION_UNIT, parser);
     }
 
     @Override public ParsedUnit matches(Context context) {
@@ -52,8 +140,8 @@ public class MatchMaker {
   }
 
   static class MissingClassDeclaration extends AbstractContextMatcher {
-    MissingClassDeclaration(){
-      super(ASTParser.K_CLASS_BODY_DECLARATIONS);
+    MissingClassDeclaration(JavaParser parser){
+      super(ASTParser.K_CLASS_BODY_DECLARATIONS, parser);
     }
 
     @Override public ParsedUnit matches(Context context) {
@@ -72,8 +160,8 @@ public class MatchMaker {
   }
 
   static class MissingClassAndMethodBodyDeclarations extends AbstractContextMatcher {
-    MissingClassAndMethodBodyDeclarations(){
-      super(ASTParser.K_STATEMENTS);
+    MissingClassAndMethodBodyDeclarations(JavaParser parser){
+      super(ASTParser.K_STATEMENTS, parser);
     }
 
     @Override public ParsedUnit matches(Context context) {
@@ -0,0 +1,113 @@
+package com.vesperin.base.matchers;
+
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.compiler.IScanner;
+import org.eclipse.jdt.core.compiler.ITerminalSymbols;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+import org.eclipse.jdt.core.dom.ASTParser;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lexical pre-classifier that predicts the {@link ASTParser} kind of a source
+ * snippet by walking its token stream once; i.e., without building any AST.
+ *
+ * A snippet declaring a type at its top level (brace depth 0) is predicted
+ * to be a compilation unit. Anything else is predicted to be a list of class
+ * body declarations, which is what JDT's recovery ends up accepting for both
+ * member-only and statement-only snippets.
+ *
+ * @author Huascar Sanchez
+ */
+public class SnippetClassifier {
+  public static final int UNKNOWN = -1;
+
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+
+  /**
+   * Constructs a new SnippetClassifier object.
+   */
+  public SnippetClassifier(){
+    this.hits   = new AtomicLong(0);
+    this.misses = new AtomicLong(0);
+  }
+
+  /**
+   * Predicts the parsing mode of some code.
+   *
+   * @param content the code to classify.
+   * @return either {@link ASTParser#K_COMPILATION_UNIT},
+   *    {@link ASTParser#K_CLASS_BODY_DECLARATIONS}, or {@link #UNKNOWN}
+   *    if the code cannot be tokenized.
+   */
+  public int classify(String content){
+    if(content == null || content.isEmpty()) return UNKNOWN;
+
+    final IScanner scanner = ToolFactory.createScanner(
+      false, false, false, JavaCore.VERSION_1_8, JavaCore.VERSION_1_8
+    );
+
+    scanner.setSource(content.toCharArray());
+
+    int depth     = 0;
+    int previous  = ITerminalSymbols.TokenNameEOF;
+
+    try {
+      int token;
+      while((token = scanner.getNextToken()) != ITerminalSymbols.TokenNameEOF){
+        switch (token){
+          case ITerminalSymbols.TokenNameLBRACE:
+            depth++;
+            break;
+          case ITerminalSymbols.TokenNameRBRACE:
+            depth = Math.max(0, depth - 1);
+            break;
+          case ITerminalSymbols.TokenNameclass:
+          case ITerminalSymbols.TokenNameinterface:
+          case ITerminalSymbols.TokenNameenum:
+            // ignores class literals (e.g., Foo.class)
+            if(depth == 0 && previous != ITerminalSymbols.TokenNameDOT){
+              return ASTParser.K_COMPILATION_UNIT;
+            }
+            break;
+        }
+
+        previous = token;
+      }
+    } catch (InvalidInputException ignored){
+      return UNKNOWN;
+    }
+
+    return ASTParser.K_CLASS_BODY_DECLARATIONS;
+  }
+
+  /**
+   * @return the number of predictions confirmed by the parser.
+   */
+  public long getHitCount(){
+    return hits.get();
+  }
+
+  /**
+   * @return the number of predictions rejected by the parser.
+   */
+  public long getMissCount(){
+    return misses.get();
+  }
+
+  void recordHit(){
+    hits.incrementAndGet();
+  }
+
+  void recordMiss(){
+    misses.incrementAndGet();
+  }
+
+  @Override public String toString() {
+    return "SnippetClassifier(hits=" + getHitCount()
+      + ", misses=" + getMissCount()
+      + ")";
+  }
+}
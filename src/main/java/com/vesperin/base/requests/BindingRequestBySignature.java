@@ -1,14 +1,13 @@
 package com.vesperin.base.requests;
 
 import com.vesperin.base.spi.BindingRequest;
+import com.vesperin.base.spi.BindingSignature;
 import com.vesperin.base.Scope;
 import org.eclipse.jdt.core.dom.IBinding;
 import org.eclipse.jdt.core.dom.ITypeBinding;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /**
  * @author Huascar Sanchez
@@ -16,7 +15,7 @@ import java.util.Set;
 public class BindingRequestBySignature implements BindingRequest {
 
   final List<IBinding>  requestedBindings;
-  final Set<String>     signatures;
+  final SignatureSet    signatures;
   final int             flags;
   final ITypeBinding    parentTypeBinding;
 
@@ -38,20 +37,27 @@ public class BindingRequestBySignature implements BindingRequest {
     this.parentTypeBinding  = parentTypeBinding;
     this.flags              = flags;
     this.requestedBindings  = new ArrayList<>();
-    this.signatures         = new HashSet<>();
+    this.signatures         = new SignatureSet();
   }
 
   @Override public boolean accept(IBinding binding) {
     if (binding == null) return false;
 
-    final String signature = getSignature(binding);
-    if (signature != null && signatures.add(signature)) {
+    // de-duplicated by hashed signature; see BindingSignature
+    if (BindingSignature.isSigned(binding) && signatures.add(binding)) {
       requestedBindings.add(binding);
     }
 
     return false;
   }
 
+  /**
+   * @return the binding of the type the requested bindings are visible from.
+   */
+  public ITypeBinding getParentTypeBinding() {
+    return parentTypeBinding;
+  }
+
   /**
    * @return the list of requested-by-signature bindings.
    */
@@ -0,0 +1,97 @@
+package com.vesperin.base.requests;
+
+import com.vesperin.base.spi.BindingSignature;
+import org.eclipse.jdt.core.dom.IBinding;
+
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+/**
+ * A set of binding signatures, kept as an open-addressing table of 64-bit
+ * signature hashes, and the first binding seen with each signature. Adding a
+ * binding allocates nothing (besides growing the table); bindings whose
+ * hashes collide are told apart by {@link BindingSignature#same(IBinding, IBinding)}.
+ *
+ * @author Huascar Sanchez
+ */
+final class SignatureSet {
+  private final ToLongFunction<IBinding> hash;
+
+  private long[]     hashes;
+  private IBinding[] members;
+  private int        size;
+
+  SignatureSet(){
+    this(BindingSignature::hash);
+  }
+
+  /**
+   * Creates a set that hashes signatures with the given function.
+   *
+   * @param hash a function that gives equal hashes to equal signatures.
+   */
+  SignatureSet(ToLongFunction<IBinding> hash){
+    this.hash     = Objects.requireNonNull(hash);
+    this.hashes   = new long[16];
+    this.members  = new IBinding[16];
+    this.size     = 0;
+  }
+
+  /**
+   * Adds a binding's signature to this set.
+   *
+   * @param binding a signed binding.
+   * @return true if no other binding with the same signature was added
+   *    before; false otherwise.
+   */
+  boolean add(IBinding binding){
+    final long signature  = hash.applyAsLong(binding);
+    final int  mask       = members.length - 1;
+
+    int slot = (int) signature & mask;
+    while (members[slot] != null) {
+      if (hashes[slot] == signature && BindingSignature.same(members[slot], binding)) {
+        return false;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    hashes[slot]  = signature;
+    members[slot] = binding;
+
+    if (++size * 2 > members.length) {
+      grow();
+    }
+
+    return true;
+  }
+
+  /**
+   * @return the number of signatures in this set.
+   */
+  int size(){
+    return size;
+  }
+
+  private void grow(){
+    final long[]     oldHashes  = hashes;
+    final IBinding[] oldMembers = members;
+
+    hashes  = new long[oldHashes.length * 2];
+    members = new IBinding[oldMembers.length * 2];
+
+    final int mask = members.length - 1;
+    for (int i = 0; i < oldMembers.length; i++) {
+      if (oldMembers[i] == null) continue;
+
+      int slot = (int) oldHashes[i] & mask;
+      while (members[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+
+      hashes[slot]  = oldHashes[i];
+      members[slot] = oldMembers[i];
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package com.vesperin.base.spi;
+
+import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+
+/**
+ * Compact binding signatures: a 64-bit hash plus an exact comparison, built
+ * from components the bindings already hold (their kind, their name, and, for
+ * methods, the binding keys of their erased parameter types). Neither one
+ * allocates a signature string, as {@link BindingRequest#getSignature(IBinding)}
+ * does.
+ *
+ * Two bindings have the same signature if they are of the same kind and have
+ * the same name; methods must also have the same erased parameter types. Equal
+ * signatures have equal hashes; equal hashes, though, may still be different
+ * signatures, so {@link #same(IBinding, IBinding)} settles any collision.
+ *
+ * @author Huascar Sanchez
+ */
+public final class BindingSignature {
+  private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  private BindingSignature(){
+    throw new Error("Utility class");
+  }
+
+  /**
+   * @param binding the binding to check.
+   * @return true if the binding has a signature (i.e., it is a method, a
+   *    variable, or a type); false otherwise.
+   */
+  public static boolean isSigned(IBinding binding){
+    if (binding == null) return false;
+
+    switch (binding.getKind()) {
+      case IBinding.METHOD:
+      case IBinding.VARIABLE:
+      case IBinding.TYPE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Hashes the signature of a binding.
+   *
+   * @param binding a signed binding.
+   * @return the signature's 64-bit hash.
+   */
+  public static long hash(IBinding binding){
+    long hash = mix(binding.getKind(), binding.getName().hashCode());
+
+    if (binding.getKind() == IBinding.METHOD) {
+      final ITypeBinding[] parameters = ((IMethodBinding) binding).getParameterTypes();
+
+      hash = mix(hash, parameters.length);
+      for (ITypeBinding each : parameters) {
+        hash = mix(hash, erasureKey(each).hashCode());
+      }
+    }
+
+    // spreads the hash over all its bits
+    hash ^= hash >>> 33;
+    hash *= 0xFF51AFD7ED558CCDL;
+    hash ^= hash >>> 33;
+
+    return hash;
+  }
+
+  /**
+   * Compares the signatures of two bindings.
+   *
+   * @param a a signed binding.
+   * @param b another signed binding.
+   * @return true if both bindings have the same signature; false otherwise.
+   */
+  public static boolean same(IBinding a, IBinding b){
+    if (a == b) return true;
+
+    if (a.getKind() != b.getKind() || !a.getName().equals(b.getName())) {
+      return false;
+    }
+
+    if (a.getKind() != IBinding.METHOD) {
+      return true;
+    }
+
+    final ITypeBinding[] left  = ((IMethodBinding) a).getParameterTypes();
+    final ITypeBinding[] right = ((IMethodBinding) b).getParameterTypes();
+
+    if (left.length != right.length) {
+      return false;
+    }
+
+    for (int i = 0; i < left.length; i++) {
+      final boolean sameErasure = left[i].getErasure() == right[i].getErasure()
+        || erasureKey(left[i]).equals(erasureKey(right[i]));
+
+      if (!sameErasure) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static String erasureKey(ITypeBinding type){
+    final ITypeBinding erasure = type.getErasure();
+    // keys are computed once per binding, and then cached
+    final String key = (erasure == null ? type : erasure).getKey();
+    return key == null ? "" : key;
+  }
+
+  private static long mix(long hash, int value){
+    return (hash + value) * MULTIPLIER;
+  }
+}
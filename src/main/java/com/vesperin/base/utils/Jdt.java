@@ -26,6 +26,9 @@ public class Jdt {
 
 
   public static Set<String> collectImportCandidates(Context context, Location selection) {
+    // import candidates are found by resolving names
+    context.ensureBindings();
+
     final ImportReferencesVisitor visitor = createImportReferencesVisitor(
       Jdt.processJavadocComments(
         context.getCompilationUnit()
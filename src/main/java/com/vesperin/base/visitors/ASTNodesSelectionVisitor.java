@@ -3,6 +3,7 @@ package com.vesperin.base.visitors;
 import com.vesperin.base.Source;
 import com.vesperin.base.locations.Location;
 import com.vesperin.base.locations.Locations;
+import com.vesperin.base.utils.Jdt;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.Expression;
 
@@ -19,6 +20,7 @@ public abstract class ASTNodesSelectionVisitor extends SkeletalVisitor {
   private final List<ASTNode> selectedNodes;
 
   private ASTNode lastCoveringNode;
+  private int     contentLength;
 
 
   /**
@@ -33,6 +35,7 @@ public abstract class ASTNodesSelectionVisitor extends SkeletalVisitor {
     this.selectedArea           = selectedArea;
     this.traverseSelectedNode   = traverseSelectedNode;
     this.selectedNodes          = new ArrayList<>();
+    this.contentLength          = -1;
   }
 
 
@@ -116,11 +119,22 @@ public abstract class ASTNodesSelectionVisitor extends SkeletalVisitor {
 
 
   @Override protected boolean visitNode(ASTNode node) {
-    final Location nodeLocation = Locations.locate(node);
+    // Same checks as Locations#outside, #covers and #endsInside, but on plain
+    // offsets; i.e., no line or column lookups for the (many) nodes pruned here.
+    if(node.getStartPosition() < 0) {
+      throw new IllegalArgumentException("Invalid offsets");
+    }
+
+    final int size          = contentLength(node);
+    final int nodeEnd       = Math.min(node.getStartPosition() + node.getLength(), size);
+    final int nodeStart     = Math.min(node.getStartPosition(), nodeEnd);
 
-    if(Locations.outside(selectedArea, nodeLocation)) {
+    final int selectionStart  = selectedArea.getStart().getOffset();
+    final int selectionEnd    = selectedArea.getEnd().getOffset();
+
+    if(nodeEnd < selectionStart || selectionEnd + 1 < nodeStart) {
       return false;
-    } else if(Locations.covers(selectedArea, nodeLocation)) {
+    } else if(selectionStart <= nodeStart && nodeEnd <= selectionEnd + 1) {
       if (isFirstNode()) {
         handleFirstSelectedNode(node);
       } else {
@@ -128,16 +142,27 @@ public abstract class ASTNodesSelectionVisitor extends SkeletalVisitor {
       }
 
       return traverseSelectedNode;
-    } else if(Locations.covers(nodeLocation, selectedArea)){
+    } else if(nodeStart <= selectionStart && selectionEnd <= nodeEnd + 1){
       lastCoveringNode = node;
       return true;
-    } else if(Locations.endsInside(selectedArea, nodeLocation)){
+    } else if(nodeStart < selectionEnd + 1 && selectionEnd + 1 < nodeEnd){
       return handleSelectionEndsIn(node);
     }
 
     return true;
   }
 
+  private int contentLength(ASTNode node){
+    if(contentLength < 0){
+      final Source code = Jdt.from(node);
+      contentLength = (code == null || code.getContent() == null)
+        ? Integer.MAX_VALUE
+        : code.getContent().length();
+    }
+
+    return contentLength;
+  }
+
   /**
    * @return {@code true} if we have selected any node, and the one
    *      we are exploring is the first one to check.
@@ -137,6 +137,10 @@ public class StatementsSelectionVisitor extends ASTNodesSelectionVisitor {
 
   @Override public void endVisit(SynchronizedStatement node) {
     final ASTNode  firstNode    = getFirstSelectedNode();
+    if(Objects.isNull(firstNode)) {
+      super.endVisit(node);
+      return;
+    }
     final Location nodeLocation = Locations.locate(firstNode);
 
     if(Locations.covers(getSelection(), nodeLocation)){
@@ -192,11 +196,10 @@ public class StatementsSelectionVisitor extends ASTNodesSelectionVisitor {
 
 
   private boolean doAfterValidation(ASTNode node, List<ASTNode> selectedNodes) {
-    final Location nodeLocation = Locations.locate(node);
-    final Location base         = getSelection();
+    // only locates the node once it is known to be the selection's parent
     return (selectedNodes.size() > 0
       && node == selectedNodes.get(0).getParent()
-      && Locations.isAfterBaseLocation(base, nodeLocation));
+      && Locations.isAfterBaseLocation(getSelection(), Locations.locate(node)));
   }
 
 
@@ -3,10 +3,20 @@ package com.vesperin.base;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.vesperin.base.locations.Locations;
+import com.vesperin.base.locators.MethodUnit;
 import com.vesperin.base.locators.UnitLocation;
+import com.vesperin.base.locators.VarUnit;
+import com.vesperin.base.visitors.StatementsSelectionVisitor;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
 import org.junit.Test;
 
+
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -36,6 +46,19 @@ public class ContextTest {
     )
   );
 
+  static final Source SRC2 = Source.from("Foo",
+    Joiner.on("\n").join(
+      ImmutableList.of(
+        "public class Foo {"
+        , " public int exit(){"
+        , "   return 1;"
+        , " }"
+        , " public int two(){ return 2; }"
+        , "}"
+      )
+    )
+  );
+
   @Test public void testBasicLocator() throws Exception {
 
     final JavaParser parser = new EclipseJavaParser();
@@ -68,5 +91,121 @@ public class ContextTest {
 
   }
 
+  @Test public void testSyntaxOnlyParsing() throws Exception {
+
+    final JavaParser parser = new EclipseJavaParser();
+
+    final Context parsedContext = parser.parseJava(SRC, ParseLevel.SYNTAX);
+    assertThat(parsedContext.locateClasses().size() == 1, is(true));
+    assertThat(parsedContext.locateMethods().size() == 1, is(true));
+    assertNull(type(parsedContext).resolveBinding());
+
+    assertNotNull(parsedContext.getScopeAnalyser());
+    assertThat(parsedContext.getParseLevel(), is(ParseLevel.BINDINGS));
+    assertNotNull(type(parsedContext).resolveBinding());
+    assertThat(parsedContext.locateMethods().size() == 1, is(true));
+  }
+
+  @Test public void testIncrementalEdit() throws Exception {
+
+    final JavaParser parser = new EclipseJavaParser();
+
+    final Context parsedContext = parser.parseJava(SRC2);
+    final MethodDeclaration exit = type(parsedContext).getMethods()[0];
+
+    final int offset = SRC2.getContent().indexOf("return 1;");
+    parsedContext.applyEdit(offset, 9, "int x = 40; return x + 1");
+
+    // spliced into the same compilation unit
+    assertThat(type(parsedContext).getMethods()[0] == exit, is(true));
+    assertThat(exit.getBody().statements().size(), is(2));
+    assertThat(parsedContext.getSyntaxProblems().isEmpty(), is(false));
+
+    final Context expected = parser.parseJava(parsedContext.getSource());
+    final MethodDeclaration two = type(parsedContext).getMethods()[1];
+    assertEquals(
+      type(expected).getMethods()[1].getStartPosition(),
+      two.getStartPosition()
+    );
+    assertEquals(expected.getScope().getEnd(), parsedContext.getScope().getEnd());
+
+    parsedContext.applyEdit(parsedContext.getSourceContent().indexOf("x + 1") + 5, 0, ";");
+    assertThat(parsedContext.getSyntaxProblems().isEmpty(), is(true));
+    assertThat(parsedContext.locateMethods().size() == 2, is(true));
+    assertNotNull(parsedContext.getScopeAnalyser());
+  }
+
+  @Test public void testDeclarationEdit() throws Exception {
+
+    final JavaParser parser = new EclipseJavaParser();
+
+    final Context parsedContext = parser.parseJava(SRC2);
+    parsedContext.applyEdit(SRC2.getContent().indexOf("two"), 3, "three");
 
+    assertThat(type(parsedContext).getMethods()[1].getName().getIdentifier(), is("three"));
+    assertThat(parsedContext.getParseLevel(), is(ParseLevel.BINDINGS));
+  }
+
+  @Test public void testSkeletonParsing() throws Exception {
+
+    final JavaParser parser = new EclipseJavaParser();
+
+    final Context parsedContext = parser.parseJava(SRC2, ParseLevel.SKELETON);
+    assertThat(parsedContext.locateClasses().size() == 1, is(true));
+    assertThat(parsedContext.locateMethods().size() == 2, is(true));
+    assertThat(parsedContext.locate(new MethodUnit("two")).size() == 1, is(true));
+    assertThat(type(parsedContext).getMethods()[0].getBody().statements().isEmpty(), is(true));
+
+    assertNotNull(parsedContext.getScopeAnalyser());
+    assertThat(type(parsedContext).getMethods()[0].getBody().statements().size(), is(1));
+  }
+
+  @Test public void testFocusedParsing() throws Exception {
+
+    final JavaParser parser = new EclipseJavaParser();
+
+    final Source src = Source.from("Foo",
+      "public class Foo {\n int one(){ return 1; }\n int two(){ int x = 2; return x; }\n int three(){ return 3; }\n}"
+    );
+
+    final int offset = src.getContent().indexOf("return x");
+    final Context parsedContext = parser.parseJavaAt(src, offset);
+
+    assertThat(parsedContext.getFocalPosition(), is(offset));
+
+    // every method is still declared...
+    final MethodDeclaration[] methods = type(parsedContext).getMethods();
+    assertThat(methods.length, is(3));
+
+    // ...but only the focused one keeps its body
+    assertThat(methods[0].getBody().statements().isEmpty(), is(true));
+    assertThat(methods[1].getBody().statements().size(), is(2));
+    assertThat(methods[2].getBody().statements().isEmpty(), is(true));
+
+    assertThat(parsedContext.locateUnit(offset, offset + 8).size(), is(1));
+    assertThat(parsedContext.locate(new VarUnit("x")).size(), is(1));
+  }
+
+  @Test public void testSelectionDescent() throws Exception {
+
+    final JavaParser parser = new EclipseJavaParser();
+
+    final Context parsedContext = parser.parseJava(SRC2);
+    final int offset = SRC2.getContent().indexOf("return 2;");
+
+    final StatementsSelectionVisitor visitor = new StatementsSelectionVisitor(
+      Locations.createLocation(SRC2, SRC2.getContent(), offset, offset + 9)
+    );
+
+    parsedContext.accept(visitor);
+
+    assertThat(visitor.getSelectedNodes().size(), is(1));
+    assertThat(visitor.getFirstSelectedNode().getNodeType(), is(ASTNode.RETURN_STATEMENT));
+    assertThat(visitor.getLastCoveringNode().getNodeType(), is(ASTNode.BLOCK));
+    assertThat(visitor.isSelectionCoveringValidStatements(), is(true));
+  }
+
+  private static TypeDeclaration type(Context context){
+    return (TypeDeclaration) context.getCompilationUnit().types().get(0);
+  }
 }
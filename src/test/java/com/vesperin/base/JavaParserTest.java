@@ -2,15 +2,46 @@ package com.vesperin.base;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
+import com.vesperin.base.matchers.MatchMaker;
+import com.vesperin.base.matchers.SnippetClassifier;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.FieldDeclaration;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
  * @author Huascar Sanchez
  */
 public class JavaParserTest {
+  @Rule public final TemporaryFolder temporary = new TemporaryFolder();
+
   static final Source SRC = Source.from("Foo",
     Joiner.on("\n").join(
       ImmutableList.of(
@@ -41,4 +72,234 @@ public class JavaParserTest {
       fail("Context should have been well formed");
     }
   }
+
+  @Test public void testSnippetClassification() throws Exception {
+    final SnippetClassifier classifier = new SnippetClassifier();
+
+    assertEquals(ASTParser.K_COMPILATION_UNIT, classifier.classify(SRC.getContent()));
+    assertEquals(ASTParser.K_CLASS_BODY_DECLARATIONS, classifier.classify("void foo(){ Foo.class.getName(); }"));
+    assertEquals(ASTParser.K_CLASS_BODY_DECLARATIONS, classifier.classify("int x = 1; x++;"));
+    assertEquals(SnippetClassifier.UNKNOWN, classifier.classify("String s = \"unterminated;"));
+  }
+
+  @Test public void testPredictedSnippetParsing() throws Exception {
+    final JavaParser parser = new EclipseJavaParser();
+    final long hits = MatchMaker.getSnippetClassifier().getHitCount();
+
+    final Context parsedContext = parser.parseJava(Source.from("int x = 1; x++;"));
+    assertNotNull(parsedContext.getCompilationUnit());
+    assertTrue(MatchMaker.getSnippetClassifier().getHitCount() > hits);
+  }
+
+  @Test public void testPooledParsing() throws Exception {
+    final ParserEngine engine = new ParserEngine(2);
+    final ExecutorService service = Executors.newFixedThreadPool(4);
+
+    try {
+      final List<Future<Context>> futures = new ArrayList<>();
+      for(int idx = 0; idx < 8; idx++){
+        futures.add(service.submit(() -> engine.parseJava(SRC)));
+      }
+
+      for(Future<Context> each : futures){
+        Context.throwSyntaxErrorIfMalformed(each.get(), true);
+      }
+    } finally {
+      service.shutdown();
+    }
+
+    assertEquals(2, engine.getAvailableParsers());
+    assertTrue(engine.getAcquisitionCount() >= 8);
+  }
+
+  @Test public void testBatchParsing() throws Exception {
+    final Source a = Source.from("A", "package a;\npublic class A {\n B b;\n}");
+    final Source b = Source.from("B", "package a;\npublic class B {}");
+    final Source c = Source.from("int x = 1;");
+
+    final List<Context> contexts = new EclipseJavaParser().parseAll(ImmutableList.of(a, b, c));
+    assertEquals(3, contexts.size());
+
+    for(Context each : contexts){
+      if(!each.getSource().equals(a)) continue;
+
+      final TypeDeclaration type  = (TypeDeclaration) each.getCompilationUnit().types().get(0);
+      final FieldDeclaration field = type.getFields()[0];
+      final ITypeBinding binding  = field.getType().resolveBinding();
+
+      assertNotNull(binding);
+      assertFalse(binding.isRecovered());
+    }
+
+    // names that are not identifiers are parsed on their own, never staged as files
+    final String probe = "EscapedMixProbe" + System.nanoTime();
+    final Path escaped = Paths.get(System.getProperty("java.io.tmpdir"), probe + ".java");
+
+    final List<Context> isolated = new EclipseJavaParser().parseAll(
+      ImmutableList.of(Source.from("../" + probe, "public class " + probe + " {}"))
+    );
+
+    assertEquals(1, isolated.size());
+    assertNotNull(isolated.get(0).getCompilationUnit());
+    assertFalse(Files.exists(escaped));
+  }
+
+  @Test public void testCachedParsing() throws Exception {
+    final ParsedUnitCache cache  = ParsedUnitCache.builder().build();
+    final ParserEngine    engine = new ParserEngine(1, cache);
+
+    final Context first  = engine.parseJava(SRC);
+    final Context second = engine.parseJava(Source.from("Foo", SRC.getContent()));
+
+    assertNotSame(first, second);
+    assertSame(first.getCompilationUnit(), second.getCompilationUnit());
+    assertEquals(1, cache.getStats().hitCount());
+    assertEquals(1, cache.getStats().missCount());
+
+    // editing one copy changes neither the other copies nor the cached entry
+    final String body = first.getCompilationUnit().toString();
+    first.applyEdit(SRC.getContent().indexOf("1;"), 1, "2");
+
+    assertEquals(SRC, second.getSource());
+    assertEquals(body, second.getCompilationUnit().toString());
+
+    // the edited copy got its own compilation unit, spliced rather than parsed again
+    assertNotSame(first.getCompilationUnit(), second.getCompilationUnit());
+    assertEquals(ParseLevel.SYNTAX, first.getParseLevel());
+    assertTrue(first.getCompilationUnit().toString().contains("return 2;"));
+    assertEquals(1, cache.getStats().missCount());
+    assertEquals(1, first.locateMethods().size());
+
+    assertEquals(SRC, engine.parseJava(SRC).getSource());
+    assertEquals(2, cache.getStats().hitCount());
+    assertEquals(1, cache.size());
+
+    // syntax-only copies are upgraded through the same engine, and its cache
+    final Context syntax0 = engine.parseJava(SRC, ParseLevel.SYNTAX);
+    final Context syntax1 = engine.parseJava(SRC, ParseLevel.SYNTAX);
+    assertSame(engine, syntax0.getParser());
+
+    syntax0.ensureBindings();
+    syntax1.ensureBindings();
+
+    assertSame(syntax0.getCompilationUnit(), syntax1.getCompilationUnit());
+    assertSame(second.getCompilationUnit(), syntax0.getCompilationUnit());
+    assertEquals(2, cache.size());
+  }
+
+  @Test public void testCancelledCacheLoads() throws Exception {
+    final ParsedUnitCache cache   = ParsedUnitCache.builder().build();
+    final ExecutorService service = Executors.newFixedThreadPool(2);
+
+    final CountDownLatch loading  = new CountDownLatch(1);
+    final CountDownLatch waiting  = new CountDownLatch(1);
+    final CountDownLatch release  = new CountDownLatch(1);
+
+    try {
+      final ParseDeadline deadline = ParseDeadline.none();
+      final Future<Context> cancelled = service.submit(() -> cache.get(SRC, ParseLevel.SYNTAX, deadline, () -> {
+        loading.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException ignored){
+          Thread.currentThread().interrupt();
+        }
+
+        deadline.cancel();
+        throw new ParseCancelledException(SRC);
+      }));
+
+      loading.await();
+
+      // a waiter's own deadline bounds its wait for someone else's parse
+      try {
+        cache.get(SRC, ParseLevel.SYNTAX, ParseDeadline.after(20, TimeUnit.MILLISECONDS), () -> {
+          throw new AssertionError("The parse is already in flight");
+        });
+        fail("Waiting should have been cancelled");
+      } catch (ParseCancelledException ignored){
+        assertFalse(deadline.isCanceled());
+      }
+
+      // a waiter with no deadline of its own is not cancelled with the parse it waits for
+      final Future<Context> waiter = service.submit(() -> cache.get(SRC, ParseLevel.SYNTAX, new NullProgressMonitor(){
+        @Override public boolean isCanceled() {
+          waiting.countDown();
+          return false;
+        }
+      }, () -> new EclipseJavaParser().parseJava(SRC, ParseLevel.SYNTAX)));
+
+      waiting.await();
+      release.countDown();
+
+      try {
+        cancelled.get();
+        fail("Parsing should have been cancelled");
+      } catch (ExecutionException e){
+        assertTrue(e.getCause() instanceof ParseCancelledException);
+      }
+
+      assertNotNull(waiter.get().getCompilationUnit());
+      assertEquals(1, cache.size());
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  @Test public void testSourceTreeAnalysis() throws Exception {
+    final Path root = temporary.newFolder("tree").toPath();
+    Files.createDirectories(root.resolve("a/b"));
+    Files.write(root.resolve("Foo.java"), SRC.getContent().getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("a/A.java"), "package a;\npublic class A {}".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("a/b/B.java"), "package a.b;\npublic class B {}".getBytes(StandardCharsets.UTF_8));
+    Files.write(root.resolve("a/notes.txt"), "class Ignored {}".getBytes(StandardCharsets.UTF_8));
+
+    final AtomicInteger seen = new AtomicInteger(0);
+
+    // a tiny budget forces files to be analyzed one at a time
+    final SourceTreeAnalyzer analyzer = new SourceTreeAnalyzer(
+      new ParserEngine(2), ParseLevel.SYNTAX, 2, 8
+    );
+
+    final long analyzed = analyzer.analyze(root, context -> {
+      assertNotNull(context.getCompilationUnit());
+      seen.incrementAndGet();
+    });
+
+    assertEquals(3, analyzed);
+    assertEquals(3, seen.get());
+  }
+
+  @Test public void testCancelledParsing() throws Exception {
+    final JavaParser parser = new EclipseJavaParser();
+
+    final Context parsed = parser.parseJava(SRC, ParseLevel.BINDINGS, ParseDeadline.after(1, TimeUnit.MINUTES));
+    assertNotNull(parsed.getCompilationUnit());
+
+    final ParseDeadline expired = ParseDeadline.after(0, TimeUnit.NANOSECONDS);
+    try {
+      parser.parseJava(SRC, ParseLevel.BINDINGS, expired);
+      fail("Parsing should have been cancelled");
+    } catch (ParseCancelledException e){
+      assertEquals(SRC, e.getSource());
+    }
+
+    final ParseDeadline token = ParseDeadline.none();
+    token.cancel();
+    try {
+      new ParserEngine(1).parseJava(SRC, ParseLevel.SYNTAX, token);
+      fail("Parsing should have been cancelled");
+    } catch (ParseCancelledException ignored){
+      assertEquals(0, token.getRemainingNanos());
+    }
+
+    // a request's monitor does not outlive the request
+    final ParseDeadline request = ParseDeadline.none();
+    final Context syntax = parser.parseJava(SRC, ParseLevel.SYNTAX, request);
+    request.cancel();
+
+    assertNull(syntax.getProgressMonitor());
+    assertNotNull(syntax.getScopeAnalyser());
+    assertTrue(syntax.getParseLevel().resolvesBindings());
+  }
 }
@@ -3,14 +3,31 @@ package com.vesperin.base;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
+import com.vesperin.base.locations.Locations;
+import com.vesperin.base.locators.MethodUnit;
 import com.vesperin.base.locators.UnitLocation;
+import com.vesperin.base.requests.BindingRequestBySignature;
+import com.vesperin.base.spi.BindingRequest;
+import com.vesperin.base.spi.BindingSignature;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Expression;
+import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jdt.core.dom.IBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
+import org.eclipse.jdt.core.dom.NodeFinder;
+import org.eclipse.jdt.core.dom.SimpleName;
 import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.eclipse.jdt.core.dom.VariableDeclaration;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -95,6 +112,278 @@ public class ScopeAnalysisTest {
     )
   );
 
+  @Test public void testLocalScopes() throws Exception {
+    final String content = Joiner.on("\n").join(
+      ImmutableList.of(
+        "public class Foo {"
+        , " private int code = 1;"
+        , " public int exit(int p){"
+        , "   int x = 1;"
+        , "   for(int i = 0; i < 2; i++){ int y = i; return y + x; }"
+        , "   try { return x; } catch (RuntimeException e) { return p; }"
+        , " }"
+        , "}"
+      )
+    );
+
+    final Context context = new EclipseJavaParser().parseJava(Source.from("Foo", content));
+    final ScopeAnalyser analyser = context.getScopeAnalyser();
+
+    assertThat(context.getScopeTree() == context.getScopeTree(), is(true));
+    assertThat(context.getScopeTree().size(), is(1));
+
+    assertThat(namesInScope(context, analyser, content.indexOf("y + x")), is(Sets.newHashSet("y", "i", "x", "p", "code")));
+    assertThat(namesInScope(context, analyser, content.indexOf("return x;") + 7), is(Sets.newHashSet("x", "p", "code")));
+    assertThat(namesInScope(context, analyser, content.indexOf("return p;") + 7), is(Sets.newHashSet("e", "x", "p", "code")));
+  }
+
+  @Test public void testTryResourceAndSwitchCaseScopes() throws Exception {
+    final String content = Joiner.on("\n").join(
+      ImmutableList.of(
+        "import java.io.*;"
+        , "public class Foo {"
+        , " enum Color { RED, GREEN }"
+        , " int read(Color c) throws IOException {"
+        , "   try (Reader res = new StringReader(\"\")) {"
+        , "     return res.read();"
+        , "   } catch (IOException e) {"
+        , "     int after = 0;"
+        , "     return after;"
+        , "   }"
+        , " }"
+        , " int pick(Color c){"
+        , "   switch (c) { case RED: return 1; default: return 0; }"
+        , " }"
+        , "}"
+      )
+    );
+
+    final Context context = new EclipseJavaParser().parseJava(Source.from("Foo", content));
+    final ScopeAnalyser analyser = context.getScopeAnalyser();
+
+    assertThat(namesInScope(context, analyser, content.indexOf("res.read")).contains("res"), is(true));
+    assertThat(namesInScope(context, analyser, content.indexOf("return after") + 7), is(Sets.newHashSet("after", "e", "c")));
+
+    // unqualified enum constants at a case label
+    final int label = content.indexOf("RED:");
+    final MethodDeclaration pick = (MethodDeclaration) NodeFinder.perform(
+      context.getCompilationUnit(), content.indexOf("pick"), 4
+    ).getParent();
+
+    final Set<String> constants = new HashSet<>();
+    context.getScopeTree().collect(pick, label, Scope.VARIABLES, binding -> !constants.add(binding.getName()));
+    assertThat(constants, is(Sets.newHashSet("RED", "GREEN", "c")));
+  }
+
+  @Test public void testSharedInheritedMembers() throws Exception {
+    final InheritedMembersCache cache = new InheritedMembersCache();
+
+    final Context context0 = new EclipseJavaParser().parseJava(SRC4);
+    final Context context1 = new EclipseJavaParser().parseJava(SRC4);
+
+    final int offset = SRC4.getContent().indexOf("return x;") + 7;
+
+    final ScopeAnalyser shared0 = new ScopeAnalyser(context0.getCompilationUnit(), null, cache);
+    final Set<String> names     = namesInScope(context0, shared0, offset);
+
+    assertThat(names, is(namesInScope(context0, context0.getScopeAnalyser(), offset)));
+    assertThat(names.contains("code"), is(true));
+    assertThat(cache.size() > 0, is(true));
+
+    // same types (same keys), but another parse: its own bindings come back
+    final ScopeAnalyser shared1 = new ScopeAnalyser(context1.getCompilationUnit(), null, cache);
+    final SimpleName    name    = (SimpleName) NodeFinder.perform(context1.getCompilationUnit(), offset, 1);
+    final IBinding      code    = ((TypeDeclaration) context1.getCompilationUnit().types().get(0))
+      .resolveBinding().getDeclaredFields()[0];
+
+    assertThat(Arrays.stream(shared1.getDeclarationsInScope(name, Scope.VARIABLES)).anyMatch(each -> each == code), is(true));
+    assertThat(shared1.isElementDeclaredInScope(code, name, Scope.VARIABLES), is(true));
+
+    // a bounded cache gives the same answers
+    final InheritedMembersCache tiny = new InheritedMembersCache(1);
+    assertThat(namesInScope(context0, new ScopeAnalyser(context0.getCompilationUnit(), null, tiny), offset), is(names));
+    assertThat(tiny.size() <= 1, is(true));
+  }
+
+  @Test public void testBatchedScopeQueries() throws Exception {
+    final String content = Joiner.on("\n").join(
+      ImmutableList.of(
+        "public class Foo {"
+        , " private int code = 1;"
+        , " public int exit(int p){"
+        , "   int x = p;"
+        , "   Runnable r = new Runnable(){ int z; public void run(){ int w = z + x; } };"
+        , "   class Local { int v = x; }"
+        , "   for(int i = 0; i < 2; i++){ int y = i; x = y + code; }"
+        , "   return x;"
+        , " }"
+        , "}"
+      )
+    );
+
+    final Context context = new EclipseJavaParser().parseJava(Source.from("Foo", content));
+    final ScopeAnalyser analyser = context.getScopeAnalyser();
+
+    final List<SimpleName> names = new ArrayList<>();
+    context.accept(new ASTVisitor() {
+      @Override public boolean visit(SimpleName node) {
+        if (node.getParent() instanceof Expression || node.getParent() instanceof VariableDeclaration) {
+          names.add(node);
+        }
+        return false;
+      }
+    });
+
+    // in reverse order, to check results come back in the offsets' order
+    Collections.reverse(names);
+
+    final int[] offsets = names.stream().mapToInt(SimpleName::getStartPosition).toArray();
+    final IBinding[][] batched = analyser.getDeclarationsInScope(offsets, Scope.VARIABLES | Scope.METHODS);
+
+    assertThat(batched.length, is(names.size()));
+    for (int i = 0; i < offsets.length; i++) {
+      final IBinding[] single = analyser.getDeclarationsInScope(names.get(i), Scope.VARIABLES | Scope.METHODS);
+      assertThat(Arrays.asList(batched[i]), is(Arrays.asList(single)));
+    }
+
+    assertThat(analyser.getDeclarationsInScope(new int[0], Scope.VARIABLES).length, is(0));
+
+    // offsets outside any type get nothing, even if the first type is not a class
+    final Context enumFirst = new EclipseJavaParser().parseJava(Source.from("Color",
+      "import java.util.List;\nenum Color { RED, GREEN }\nclass Foo { int x; }"));
+
+    final IBinding[][] outside = enumFirst.getScopeAnalyser()
+      .getDeclarationsInScope(new int[]{0}, Scope.VARIABLES);
+
+    assertThat(outside.length, is(1));
+    assertThat(outside[0].length, is(0));
+  }
+
+  @Test public void testDefUseIndex() throws Exception {
+    final String content = Joiner.on("\n").join(
+      ImmutableList.of(
+        "public class Foo {"
+        , " private int code = 1;"
+        , " public int exit(int p){"
+        , "   int x = Config.CODE + p;"
+        , "   Runnable r = () -> { int z = code; };"
+        , "   if(x > 0){ int y = boo(x); return y; }"
+        , "   class Local { int v = 2; }"
+        , "   System.out.println(x);"
+        , "   return boo(code);"
+        , " }"
+        , " int boo(int a){ return a; }"
+        , " static class Config { static final int CODE = 1; }"
+        , "}"
+      )
+    );
+
+    final Context context = new EclipseJavaParser().parseJava(Source.from("Foo", content));
+    final MethodDeclaration exit = (MethodDeclaration) context.locate(new MethodUnit("exit")).get(0).getUnitNode();
+
+    // kept by the context, not by the (possibly shared) AST
+    final ScopeAnalyser analyser = context.getScopeAnalyser();
+    final DefUseIndex index = analyser.getDefUseIndex(exit);
+    assertThat(analyser.getDefUseIndex(exit) == index, is(true));
+    assertThat(context.getScopeAnalyser().getDefUseIndex(exit) == index, is(true));
+    assertThat(exit.properties().isEmpty(), is(true));
+
+    final String x = ((VariableDeclaration) NodeFinder.perform(exit, content.indexOf("x = "), 1).getParent())
+      .resolveBinding().getKey();
+
+    assertThat(index.getDeclaration(x).getNodeType(), is(ASTNode.VARIABLE_DECLARATION_FRAGMENT));
+    assertThat(index.getUses(x).length, is(3));
+    assertThat(index.getUses(x)[0], is(content.indexOf("x > 0")));
+
+    // a range lookup: the declarations used in the if statement, in order of first use
+    final int start = content.indexOf("if(x");
+    final int end   = content.indexOf("class Local");
+    final List<String> used = index.getUsedDeclarations(start, end).stream()
+      .map(IBinding::getName).collect(Collectors.toList());
+    assertThat(used, is(Arrays.asList("x", "boo", "y")));
+    assertThat(index.getUsedDeclarations(end, end).isEmpty(), is(true));
+
+    assertThat(
+      analyser.getUsedDeclarations(Locations.createLocation(context.getSource(), content, start, end)),
+      is(index.getUsedDeclarations(start, end))
+    );
+
+    // the index answers exactly what a walk over each block would
+    final List<ASTNode> nodes = new ArrayList<>();
+    exit.accept(new ASTVisitor() {
+      @Override public void preVisit(ASTNode node) {
+        nodes.add(node);
+      }
+    });
+
+    for (ASTNode each : nodes) {
+      for (int flags = 0; flags < 8; flags++) {
+        for (boolean focusOnFields : new boolean[]{true, false}) {
+          assertThat(
+            analyser.getIndexedDeclarations(each, flags, focusOnFields),
+            is(ScopeAnalyser.getAllDeclarations(each, flags, focusOnFields))
+          );
+        }
+      }
+    }
+  }
+
+  @Test public void testHashedBindingSignatures() throws Exception {
+    final String content = Joiner.on("\n").join(
+      ImmutableList.of(
+        "import java.util.List;"
+        , "public class Foo extends Bar<String> {"
+        , " int code;"
+        , " void put(List<String> a){}"
+        , " void put(String a){}"
+        , " void put(int a){}"
+        , " void put(int a, int b){}"
+        , " int code(){ return code; }"
+        , "}"
+        , "class Bar<E> { int code; void put(List<E> a){} void put(Object a){} }"
+      )
+    );
+
+    final Context context = new EclipseJavaParser().parseJava(Source.from("Foo", content));
+    final CompilationUnit unit = context.getCompilationUnit();
+
+    final ITypeBinding foo = ((TypeDeclaration) unit.types().get(0)).resolveBinding();
+    final ITypeBinding bar = ((TypeDeclaration) unit.types().get(1)).resolveBinding();
+
+    final List<IBinding> all = new ArrayList<>();
+    for (ITypeBinding each : new ITypeBinding[]{foo, foo.getSuperclass(), bar}) {
+      all.addAll(Arrays.asList(each.getDeclaredFields()));
+      Arrays.stream(each.getDeclaredMethods()).filter(m -> !m.isConstructor()).forEach(all::add);
+      all.add(each);
+    }
+
+    final BindingRequest strings = binding -> false;
+    for (IBinding a : all) {
+      for (IBinding b : all) {
+        final boolean same = BindingSignature.same(a, b);
+        assertThat(same, is(strings.getSignature(a).equals(strings.getSignature(b))));
+        if (same) {
+          assertThat(BindingSignature.hash(a), is(BindingSignature.hash(b)));
+        }
+      }
+    }
+
+    // overridden methods and hidden fields are reported once; overloads are not
+    final BindingRequestBySignature request = new BindingRequestBySignature();
+    all.forEach(request::accept);
+
+    final Set<String> expected = all.stream().map(strings::getSignature).collect(Collectors.toSet());
+    assertThat(request.getRequestedBindings().size(), is(expected.size()));
+    assertThat(request.getRequestedBindings().get(0).getName(), is("code"));
+  }
+
+  private static Set<String> namesInScope(Context context, ScopeAnalyser analyser, int offset){
+    final SimpleName name = (SimpleName) NodeFinder.perform(context.getCompilationUnit(), offset, 1);
+    return Arrays.stream(analyser.getDeclarationsInScope(name, Scope.VARIABLES))
+      .map(IBinding::getName)
+      .collect(Collectors.toSet());
+  }
+
   @Test public void testScopeAnalysisLocalVsUniverse() throws Exception {
     final Context context = new EclipseJavaParser().parseJava(SRC);
     final ScopeAnalyser analyser = context.getScopeAnalyser();
@@ -3,6 +3,8 @@ package com.vesperin.base.locations;
 import com.vesperin.base.Source;
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
@@ -78,5 +80,100 @@ public class LocationTests {
     assertThat(Locations.outside(c, a), is(true));
   }
 
+  @Test public void testLocationsAcrossLineSeparators() {
+    final String content = "a\r\nbc\rd\n\ne";
+    final Source source  = Source.from(NAME, content);
+
+    // offset, line, column
+    final int[][] expected = {
+      {0, 0, 0}, {1, 0, 1}, {2, 1, 0}, {3, 1, 0}, {4, 1, 1}, {5, 1, 2},
+      {6, 2, 0}, {7, 2, 1}, {8, 3, 0}, {9, 4, 0}, {10, 4, 1}
+    };
+
+    for(int[] each : expected){
+      final Location location = Locations.createLocation(source, content, each[0], each[0]);
+      assertThat(location.getStart().getLine(), is(each[1]));
+      assertThat(location.getStart().getColumn(), is(each[2]));
+      assertThat(location.getStart().getOffset(), is(each[0]));
+    }
+
+    assertThat(source.getLineIndex().getLineCount(), is(5));
+    assertThat(source.getLineIndex(), is(source.getLineIndex()));
+  }
+
+  @Test public void testPackedLocations() {
+    final String content = "a\r\nbc\rd\n\ne";
+    final Source source  = Source.from(NAME, content);
+    final LineIndex lines = source.getLineIndex();
+
+    final LocationList.Builder builder = LocationList.builder(source);
+    for(int start = 0; start <= content.length(); start++){
+      for(int end = start; end <= content.length(); end++){
+        final Location packed   = new PackedLocation(source, lines, start, end);
+        final Location expected = Locations.createLocation(
+          source, lines.getPosition(start), lines.getPosition(end)
+        );
+
+        assertThat(packed.same(expected), is(true));
+        assertThat(packed.compareTo(expected), is(0));
+        assertThat(packed.toString(), is(expected.toString()));
+
+        builder.add(start, end);
+      }
+    }
+
+    final LocationList list = builder.add(3, 100).build();
+    assertThat(list.size(), is(67));
+    assertThat(list.get(1).getEnd().getLine(), is(0));
+    assertThat(list.getEndOffset(66), is(content.length()));
+    assertThat(list.get(66).getSource(), is(source));
+  }
+
+  @Test public void testCreateLocationsInInputOrder() {
+    final int[] starts  = {40, 0, 13, 13, CONTENT.length() - 1};
+    final int[] ends    = {45, 6, 20, 13, CONTENT.length() + 5};
+
+    final List<Location> locations = Locations.createLocations(SOURCE, starts, ends);
 
-}
\ No newline at end of file
+    assertThat(locations.size(), is(starts.length));
+    for(int idx = 0; idx < starts.length; idx++){
+      final Location expected = Locations.createLocation(SOURCE, CONTENT, starts[idx], ends[idx]);
+      assertThat(locations.get(idx).same(expected), is(true));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testCreateLocationsWithInvalidOffsets() {
+    Locations.createLocations(SOURCE, new int[]{3, 5}, new int[]{4, 1});
+  }
+
+  @Test public void testLocateWordIgnoresCommentsAndLiterals() {
+    final String content = "class Name {\n"
+      + "  // msg is not used\n"
+      + "  String msg = \"msg\";\n"
+      + "  void boom(){ System.out.println(msg + '\\''); }\n"
+      + "  /* unterminated \"msg */ int a$b = 0;\n"
+      + "}";
+
+    final Source source = Source.from(NAME, content);
+
+    final List<Location> locations = Locations.locateWord(source, "msg");
+    assertThat(locations.size(), is(2));
+
+    for(Location each : locations){
+      final int start = each.getStart().getOffset();
+      final int end   = each.getEnd().getOffset();
+      assertThat(content.substring(start, end), is("msg"));
+    }
+
+    assertThat(Locations.locateWord(source, "a$b").size(), is(1));
+    assertThat(Locations.locateWord(source, "unterminated").isEmpty(), is(true));
+
+    final Source broken = Source.from(NAME, "String s = \"msg;\nint msg = 1;");
+    assertThat(Locations.locateWord(broken, "msg").size(), is(1));
+    // keywords and literals are not identifiers; they are still found
+    assertThat(Locations.locateWord(source, "int").size(), is(1));
+    assertThat(Locations.locateWord(source, "void").size(), is(1));
+    assertThat(Locations.locateWord(broken, "int").size(), is(1));
+  }
+}
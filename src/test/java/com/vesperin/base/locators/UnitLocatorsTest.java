@@ -5,12 +5,16 @@ import com.google.common.collect.ImmutableList;
 import com.vesperin.base.Context;
 import com.vesperin.base.EclipseJavaParser;
 import com.vesperin.base.Source;
+import com.vesperin.base.visitors.StatementsSelectionVisitor;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static com.vesperin.base.locations.Locations.createLocation;
 import static org.hamcrest.core.Is.is;
@@ -114,6 +118,153 @@ public class UnitLocatorsTest {
     assertThat(locations.size() == 2, is(true));
   }
 
+  @Test public void testIndexedDeclarations() throws Exception {
+    final Source src = Source.from("Bar",
+      Joiner.on("\n").join(
+        ImmutableList.of(
+          "public class Bar {"
+          , " // count is documented here"
+          , " int count, total = count;"
+          , " void add(int delta){"
+          , "   int count = delta;"
+          , "   try { total += count; } catch (RuntimeException e) {}"
+          , " }"
+          , "}"
+        )
+      )
+    );
+
+    final Context context = new EclipseJavaParser().parseJava(src);
+
+    final List<UnitLocation> fields = context.locate(new FieldUnit("count"));
+    sharedAssertionChecking(fields);
+    assertNodeType(fields, ASTNode.FIELD_DECLARATION);
+    assertThat(fields.get(0).getStart().getLine(), is(2));
+
+    final List<UnitLocation> locals = context.locate(new VarUnit("count"));
+    sharedAssertionChecking(locals);
+    assertNodeType(locals, ASTNode.VARIABLE_DECLARATION_STATEMENT);
+
+    sharedAssertionChecking(context.locate(new ParameterUnit("delta")));
+    sharedAssertionChecking(context.locate(new ParameterUnit("e")));
+    assertThat(context.locate(new FieldUnit()).size(), is(1));
+    assertThat(context.locate(new MethodUnit("count")).isEmpty(), is(true));
+
+    assertThat(context.getDeclarationIndex() == context.getDeclarationIndex(), is(true));
+  }
+
+  @Test public void testLocateAll() throws Exception {
+    final ProgramUnit type    = new ClassUnit("Foo");
+    final ProgramUnit method  = new MethodUnit("exit");
+    final ProgramUnit missing = new FieldUnit("code");
+    final ProgramUnit select  = new SelectedUnit(createLocation(SRC, SRC.getContent(), 31, 35));
+
+    final Map<ProgramUnit, List<UnitLocation>> all = locator.locateAll(
+      ImmutableList.of(type, method, missing, select)
+    );
+
+    assertThat(ImmutableList.copyOf(all.keySet()), is(ImmutableList.of(type, method, missing, select)));
+    assertNodeType(all.get(type), ASTNode.TYPE_DECLARATION);
+    assertNodeType(all.get(method), ASTNode.METHOD_DECLARATION);
+    assertThat(all.get(missing).isEmpty(), is(true));
+    assertThat(all.get(select).size(), is(locator.locate(select).size()));
+  }
+
+  @Test public void testLazyLocate() throws Exception {
+    final Context context = new EclipseJavaParser().parseJava(SRC);
+
+    final Optional<UnitLocation> first = context.stream(new MethodUnit("exit")).findFirst();
+    assertThat(first.isPresent(), is(true));
+    assertEquals(first.get().getUnitNode().getNodeType(), ASTNode.METHOD_DECLARATION);
+    assertThat(context.hasDeclarationIndex(), is(false));
+
+    assertThat(context.stream(new FieldUnit("exit")).findAny().isPresent(), is(false));
+
+    final List<ASTNode> streamed = context.stream(new ClassUnit()).map(UnitLocation::getUnitNode)
+      .collect(Collectors.toList());
+    final List<ASTNode> listed = context.locateClasses().stream().map(UnitLocation::getUnitNode)
+      .collect(Collectors.toList());
+
+    assertEquals(listed, streamed);
+    assertThat(context.hasDeclarationIndex(), is(true));
+    assertThat(context.stream(new MethodUnit()).count(), is(1L));
+  }
+
+  @Test public void testWorkspaceLocate() throws Exception {
+    final EclipseJavaParser parser = new EclipseJavaParser();
+
+    final Context bar = parser.parseJava(Source.from("Bar",
+      "public class Bar {\n int exit(){ return 2; }\n void stop(){}\n int exit(int a){ return a; }\n}"
+    ));
+    final Context baz = parser.parseJava(Source.from("Baz", "public class Baz {\n void stop(){}\n}"));
+    final Context foo = parser.parseJava(SRC);
+
+    final WorkspaceLocator workspace = new WorkspaceLocator(ImmutableList.of(foo, baz, bar, foo));
+    assertThat(workspace.getContexts(), is(ImmutableList.of(bar, baz, foo)));
+
+    final List<UnitLocation> exits = workspace.locate(new MethodUnit("exit"));
+    assertThat(exits.size(), is(3));
+    assertNodeType(exits, ASTNode.METHOD_DECLARATION);
+    assertThat(exits.get(0).getSource(), is(bar.getSource()));
+    assertThat(exits.get(0).getStart().getOffset() < exits.get(1).getStart().getOffset(), is(true));
+    assertThat(exits.get(2).getSource(), is(foo.getSource()));
+
+    // Baz never mentions exit; its AST is left untouched
+    assertThat(baz.hasDeclarationIndex(), is(false));
+
+    assertThat(workspace.locate(new ClassUnit()).size(), is(3));
+    assertThat(workspace.locate(new FieldUnit("exit")).isEmpty(), is(true));
+
+    // selections are never pruned
+    final ProgramUnit select = new SelectedUnit(createLocation(SRC, SRC.getContent(), 31, 35));
+    final int selected = new ProgramUnitLocator(foo).locate(select).size();
+
+    assertThat(selected > 0, is(true));
+    assertThat(new WorkspaceLocator(ImmutableList.of(foo)).locate(select).size(), is(selected));
+  }
+
+  @Test public void testIntervalIndex() throws Exception {
+    final Context context = new EclipseJavaParser().parseJava(SRC);
+    final IntervalIndex index = context.getIntervalIndex();
+
+    final int offset = SRC.getContent().indexOf("return");
+
+    final List<Integer> enclosing = index.getEnclosing(offset).stream()
+      .map(each -> each.getUnitNode().getNodeType()).collect(Collectors.toList());
+
+    assertEquals(ImmutableList.of(
+      ASTNode.TYPE_DECLARATION, ASTNode.METHOD_DECLARATION, ASTNode.BLOCK, ASTNode.RETURN_STATEMENT
+    ), enclosing);
+
+    assertThat(index.getInnermost(offset, offset + 9).getUnitNode().getNodeType(), is(ASTNode.RETURN_STATEMENT));
+    assertThat(index.getEnclosing(0).size(), is(1));
+    assertThat(index.getEnclosed(offset, offset + 9).size(), is(1));
+    assertThat(index.getOverlapping(offset - 1, offset + 1).size(), is(4));
+    assertThat(index.getEnclosed(0, SRC.getContent().length()).size(), is(index.size()));
+
+    // locating a selection from the index agrees with a whole-tree descent
+    final String content = SRC.getContent();
+    for(int start = 0; start < content.length(); start++){
+      for(int end = start; end <= content.length(); end++){
+        final StatementsSelectionVisitor visitor = new StatementsSelectionVisitor(
+          createLocation(SRC, content, start, end), true
+        );
+
+        context.accept(visitor);
+        visitor.checkIfSelectionCoversValidStatements();
+
+        final List<ASTNode> expected = visitor.isSelectionCoveringValidStatements()
+          ? visitor.getSelectedNodes()
+          : ImmutableList.of();
+
+        final List<ASTNode> actual = context.locateUnit(start, end).stream()
+          .map(UnitLocation::getUnitNode).collect(Collectors.toList());
+
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
   private static void sharedAssertionChecking(List<UnitLocation> locations) {
     assertThat(locations.isEmpty(), is(false));
     assertThat(locations.size() == 1, is(true));
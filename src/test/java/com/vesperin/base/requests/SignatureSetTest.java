@@ -0,0 +1,77 @@
+package com.vesperin.base.requests;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.vesperin.base.Context;
+import com.vesperin.base.EclipseJavaParser;
+import com.vesperin.base.Source;
+import org.eclipse.jdt.core.dom.IMethodBinding;
+import org.eclipse.jdt.core.dom.ITypeBinding;
+import org.eclipse.jdt.core.dom.IVariableBinding;
+import org.eclipse.jdt.core.dom.TypeDeclaration;
+import org.junit.Test;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author Huascar Sanchez
+ */
+public class SignatureSetTest {
+  @Test public void testCollidingSignatures() throws Exception {
+    final String fields = IntStream.range(0, 40)
+      .mapToObj(i -> " int f" + i + ";")
+      .collect(Collectors.joining("\n"));
+
+    final String content = Joiner.on("\n").join(
+      ImmutableList.of(
+        "public class Foo extends Bar {"
+        , " int code;"
+        , fields
+        , " void put(int a){}"
+        , " void put(String a){}"
+        , " void code(){}"
+        , "}"
+        , "class Bar { int code; void put(int b){} }"
+      )
+    );
+
+    final Context context = new EclipseJavaParser().parseJava(Source.from("Foo", content));
+    final ITypeBinding foo = ((TypeDeclaration) context.getCompilationUnit().types().get(0)).resolveBinding();
+    final ITypeBinding bar = ((TypeDeclaration) context.getCompilationUnit().types().get(1)).resolveBinding();
+
+    // every binding hashes the same, so only the exact comparison tells them apart
+    final SignatureSet set = new SignatureSet(binding -> 42L);
+
+    for (IVariableBinding each : foo.getDeclaredFields()) {
+      assertThat(each.getName(), set.add(each), is(true));
+    }
+
+    // different parameters, or a different kind, is a different signature
+    for (IMethodBinding each : foo.getDeclaredMethods()) {
+      if (each.isConstructor()) continue;
+      assertThat(each.toString(), set.add(each), is(true));
+    }
+
+    assertThat(set.size(), is(44));
+
+    // same kind, name, and parameters, is the same signature
+    for (IVariableBinding each : bar.getDeclaredFields()) {
+      assertThat(each.getName(), set.add(each), is(false));
+    }
+
+    for (IMethodBinding each : bar.getDeclaredMethods()) {
+      if (each.isConstructor()) continue;
+      assertThat(each.toString(), set.add(each), is(false));
+    }
+
+    for (IVariableBinding each : foo.getDeclaredFields()) {
+      assertThat(each.getName(), set.add(each), is(false));
+    }
+
+    assertThat(set.size(), is(44));
+  }
+}